@@ -1,5 +1,6 @@
 package it.karatekide.pizza.tree;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -8,15 +9,19 @@ import lombok.Setter;
  * x represents the ROW the cell is in, and y
  * represents the column.
  *
+ * Cells with the same coordinates are equal, so that they
+ * can be used as keys, e.g. of the changes of a pizza.
+ *
  * @author Luca Di Stefano
  */
 @Getter
 @Setter
-class Cell {
+@EqualsAndHashCode
+public class Cell {
 
     int x, y;
 
-    Cell(int x, int y) {
+    public Cell(int x, int y) {
         this.x = x;
         this.y = y;
     }
@@ -0,0 +1,174 @@
+package it.karatekide.pizza.tree;
+
+import lombok.Getter;
+
+/**
+ * Upper bound of the cells that can be used when slicing a pizza,
+ * to know how far a solution is from the optimum without having
+ * to find the optimum itself.
+ *
+ * The bound is computed on the current state of the pizza (so it can be
+ * computed before slicing or while slicing) as the cells already cut plus
+ * the smallest of the following limits on the cells still available:
+ * <ul>
+ *     <li>
+ *         <strong>Coverable cells:</strong> a cell can only be used if at least one feasible slice
+ *         (not too big, with enough toppings of every kind, not overlapping other slices) contains it.
+ *     </li>
+ *     <li>
+ *         <strong>Topping scarcity:</strong> every slice needs at least "minimum ingredients" toppings of
+ *         the scarcest kind, so there can't be more than <code>min(toppings) / minIngredient</code> slices,
+ *         each one of at most "max size" cells.
+ *     </li>
+ * </ul>
+ *
+ * Topping counts of every rectangle are read from prefix sums, so the computation
+ * takes <code>O(rows * cols * shapes)</code> where shapes are the rectangle
+ * dimensions allowed by the max slice size (a few dozens for the data sets).
+ *
+ * @author Luca Di Stefano
+ */
+@Getter
+public class CoverageBound {
+
+    private final int surface;
+    private final int cutCells;
+    private final int coverableCells;
+    private final long scarcityLimit;
+    private final int upperBound;
+
+    /**
+     * Computes the bound for the current state of the pizza
+     *
+     * @param pizza the pizza
+     */
+    public CoverageBound(Pizza pizza) {
+        Topping[][] map = pizza.getPizza();
+        int rows = map.length;
+        int cols = map[0].length;
+        int minIngredient = pizza.getMinIngredient();
+        int maxSize = pizza.getMaxSize();
+
+        int[] required = pizza.getRequiredToppings();
+
+        int stride = cols + 1;
+        int[] free = new int[(rows + 1) * stride];
+        int[][] toppings = new int[required.length][(rows + 1) * stride];
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                int i = (x + 1) * stride + y + 1;
+                int up = i - stride;
+                free[i] = free[up] + free[i - 1] - free[up - 1] + (map[x][y] != null ? 1 : 0);
+                for (int t = 0; t < required.length; t++) {
+                    int[] sums = toppings[t];
+                    boolean topping = map[x][y] != null && map[x][y].ordinal() == required[t];
+                    sums[i] = sums[up] + sums[i - 1] - sums[up - 1] + (topping ? 1 : 0);
+                }
+            }
+        }
+
+        // Marks every feasible rectangle on a difference array, then a cell is coverable if any rectangle marked it
+        int[] covered = new int[(rows + 1) * stride];
+        for (int h = 1; h <= Math.min(maxSize, rows); h++) {
+            for (int w = Math.max(1, (required.length * minIngredient + h - 1) / h); w <= Math.min(maxSize / h, cols); w++) {
+                int area = h * w;
+                for (int x = 0; x + h <= rows; x++) {
+                    for (int y = 0; y + w <= cols; y++) {
+                        if (sum(free, stride, x, y, h, w) == area
+                                && hasToppings(toppings, stride, x, y, h, w, minIngredient)) {
+                            covered[x * stride + y]++;
+                            covered[x * stride + y + w]--;
+                            covered[(x + h) * stride + y]--;
+                            covered[(x + h) * stride + y + w]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        int coverable = 0;
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                int i = x * stride + y;
+                if (x > 0)
+                    covered[i] += covered[i - stride];
+                if (y > 0)
+                    covered[i] += covered[i - 1];
+                if (x > 0 && y > 0)
+                    covered[i] -= covered[i - stride - 1];
+                if (covered[i] > 0)
+                    coverable++;
+            }
+        }
+
+        int scarce = Integer.MAX_VALUE;
+        for (int[] sums : toppings)
+            scarce = Math.min(scarce, sums[rows * stride + cols]);
+
+        surface = rows * cols;
+        cutCells = surface - pizza.getWaste() - free[rows * stride + cols];
+        coverableCells = coverable;
+        scarcityLimit = (long) (scarce / minIngredient) * maxSize;
+        upperBound = cutCells + (int) Math.min(coverableCells, scarcityLimit);
+    }
+
+    /**
+     * Sums the values of a rectangle from the prefix sums
+     *
+     * @param prefix the prefix sums
+     * @param stride the length of a row of prefix sums
+     * @param x the starting row
+     * @param y the starting column
+     * @param h the height of the rectangle
+     * @param w the width of the rectangle
+     * @return the sum of the values in the rectangle
+     */
+    private static int sum(int[] prefix, int stride, int x, int y, int h, int w) {
+        return prefix[(x + h) * stride + y + w] - prefix[x * stride + y + w]
+                - prefix[(x + h) * stride + y] + prefix[x * stride + y];
+    }
+
+    /**
+     * Indicates whether a rectangle has enough toppings of every kind in the map
+     *
+     * @param toppings the prefix sums of every kind of topping in the map
+     * @param stride the length of a row of prefix sums
+     * @param x the starting row
+     * @param y the starting column
+     * @param h the height of the rectangle
+     * @param w the width of the rectangle
+     * @param minIngredient the toppings of every kind needed
+     * @return true if no topping is missing
+     */
+    private static boolean hasToppings(int[][] toppings, int stride, int x, int y, int h, int w, int minIngredient) {
+        for (int[] sums : toppings) {
+            if (sum(sums, stride, x, y, h, w) < minIngredient)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether a solution can't be improved anymore
+     *
+     * @param used the cells used by the solution
+     * @return true if the solution uses as many cells as the upper bound
+     */
+    public boolean isReached(int used) {
+        return used >= upperBound;
+    }
+
+    /**
+     * The upper bound as a ratio of the whole pizza
+     *
+     * @return the highest ratio of used cells that can be reached
+     */
+    public double getRatio() {
+        return (double) upperBound / surface;
+    }
+
+    @Override
+    public String toString() {
+        return "Upper bound: " + upperBound + " (" + (double) Math.round(getRatio() * 10000) / 100 + "%)";
+    }
+}
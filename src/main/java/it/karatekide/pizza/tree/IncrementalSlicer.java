@@ -0,0 +1,155 @@
+package it.karatekide.pizza.tree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates the solution of a sliced pizza when some of its toppings change,
+ * instead of slicing the whole pizza again.
+ *
+ * The slices that contain a changed cell are found through the {@link SliceIndex}
+ * of the pizza, and only those are put back on the pizza; all the other slices
+ * stay where they are, since their toppings did not change. The slicer then runs
+ * only on the neighbourhood of every change (the area of its discarded slice, or
+ * the changed cell, enlarged by the max slice size), where the cells that were
+ * previously wasted are put back too. Neighbourhoods are merged only when they
+ * overlap, so changes far from each other are handled separately. Outside of the
+ * neighbourhoods previously wasted cells stay wasted.
+ *
+ * Nothing outside of the neighbourhoods is visited, so an update costs the size
+ * of the neighbourhoods, plus a row and a column of prefix sums for every changed
+ * topping, whatever the size of the pizza and the distance between the changes.
+ *
+ * @author Luca Di Stefano
+ */
+public class IncrementalSlicer {
+
+    private static final int TOP = 0, LEFT = 1, BOTTOM = 2, RIGHT = 3;
+
+    private Pizza pizza;
+
+    /**
+     * Creates a new incremental slicer
+     *
+     * @param pizza the pizza, completely sliced
+     */
+    public IncrementalSlicer(Pizza pizza) {
+        this.pizza = pizza;
+    }
+
+    /**
+     * Changes some toppings and updates the solution. After this call the pizza is
+     * completely sliced again, and its slice index holds the updated solution.
+     *
+     * The changes are all checked before touching the pizza, so if one of them is not
+     * valid the pizza and its solution are left as they are.
+     *
+     * @param changed the new topping of every changed cell, one of the topping types of the pizza
+     * @return the slices that have been cut by the update, in cutting order
+     * @throws IllegalArgumentException if a cell is outside of the pizza or had no topping in the map,
+     * or if a topping is not one of the topping types of the pizza
+     */
+    public List<Slice> reslice(Map<Cell, Topping> changed) {
+        Topping[][] map = pizza.getPizza();
+        SliceIndex index = pizza.getSlices();
+        int rows = map.length;
+        int cols = map[0].length;
+
+        Topping[] types = pizza.getToppingTypes();
+        for (Map.Entry<Cell, Topping> change : changed.entrySet()) {
+            Cell c = change.getKey();
+            Topping t = change.getValue();
+            if (c == null || c.x < 0 || c.x >= rows || c.y < 0 || c.y >= cols)
+                throw new IllegalArgumentException("Cell " + (c == null ? null : c.x + "x" + c.y) + " is outside of the pizza");
+            if (pizza.getOriginalTopping(c.x, c.y) == null)
+                throw new IllegalArgumentException("Cell " + c.x + "x" + c.y + " has no topping");
+            if (t == null || t.ordinal() >= types.length || types[t.ordinal()] != t)
+                throw new IllegalArgumentException("Unknown topping " + t);
+        }
+
+        // Every change has its own neighbourhood, and only the ones that overlap are merged
+        int margin = Math.min(pizza.getMaxSize() - 1, Math.max(rows, cols));
+        List<int[]> windows = new ArrayList<>();
+        for (Cell c : changed.keySet()) {
+            int[] window = {c.x, c.y, c.x, c.y};
+            int id = index.sliceAt(c.x, c.y);
+            if (id != SliceIndex.NONE) {
+                window = new int[]{index.getStartRow(id), index.getStartCol(id), index.getEndRow(id), index.getEndCol(id)};
+                pizza.uncut(id);
+            }
+            window[TOP] = Math.max(0, window[TOP] - margin);
+            window[LEFT] = Math.max(0, window[LEFT] - margin);
+            window[BOTTOM] = Math.min(rows - 1, window[BOTTOM] + margin);
+            window[RIGHT] = Math.min(cols - 1, window[RIGHT] + margin);
+            addWindow(windows, window);
+        }
+
+        for (int[] window : windows) {
+            for (int x = window[TOP]; x <= window[BOTTOM]; x++) {
+                for (int y = window[LEFT]; y <= window[RIGHT]; y++) {
+                    if (map[x][y] == null && index.sliceAt(x, y) == SliceIndex.NONE && pizza.getOriginalTopping(x, y) != null)
+                        pizza.unwaste(x, y);
+                }
+            }
+        }
+
+        for (Map.Entry<Cell, Topping> change : changed.entrySet()) {
+            pizza.setTopping(change.getKey().x, change.getKey().y, change.getValue());
+        }
+
+        // A slice starting in a window can end in the next one, so a cell where no slice can start
+        // is only wasted once all the windows have been sliced
+        windows.sort(Comparator.<int[]>comparingInt(w -> w[TOP]).thenComparingInt(w -> w[LEFT]));
+        List<Slice> slices = new ArrayList<>();
+        Slicer slicer = new Slicer(pizza);
+        for (int[] window : windows) {
+            for (int x = window[TOP]; x <= window[BOTTOM]; x++) {
+                for (int y = window[LEFT]; y <= window[RIGHT]; y++) {
+                    if (map[x][y] != null) {
+                        Slice s = slicer.trySlice(new Cell(x, y));
+                        if (s != null)
+                            slices.add(s);
+                    }
+                }
+            }
+        }
+        for (int[] window : windows) {
+            for (int x = window[TOP]; x <= window[BOTTOM]; x++) {
+                for (int y = window[LEFT]; y <= window[RIGHT]; y++) {
+                    if (map[x][y] != null)
+                        pizza.waste(x, y);
+                }
+            }
+        }
+
+        return slices;
+    }
+
+    /**
+     * Adds the neighbourhood of a change to the ones found so far, merging it with all the
+     * neighbourhoods it overlaps, so that no cell belongs to two of them
+     *
+     * @param windows the neighbourhoods found so far, that don't overlap
+     * @param window the new neighbourhood, as top, left, bottom and right bounds
+     */
+    private static void addWindow(List<int[]> windows, int[] window) {
+        for (int i = 0; i < windows.size(); ) {
+            int[] other = windows.get(i);
+            if (other[TOP] <= window[BOTTOM] && other[BOTTOM] >= window[TOP]
+                    && other[LEFT] <= window[RIGHT] && other[RIGHT] >= window[LEFT]) {
+                window[TOP] = Math.min(window[TOP], other[TOP]);
+                window[LEFT] = Math.min(window[LEFT], other[LEFT]);
+                window[BOTTOM] = Math.max(window[BOTTOM], other[BOTTOM]);
+                window[RIGHT] = Math.max(window[RIGHT], other[RIGHT]);
+                windows.remove(i);
+                // The merged window can now overlap a window already checked
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        windows.add(window);
+    }
+}
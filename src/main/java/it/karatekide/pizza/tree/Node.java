@@ -13,62 +13,69 @@ import static java.lang.Double.MAX_VALUE;
  * Each node has its own weight, that indicates how well
  * the current slice fits in a possible solution.
  *
- * The Node also contains a pointer reference to:
- * <ul>
- *     <li>The previous state, in order to know the difference between states</li>
- *     <li>
- *         The "right" state that represents what happens if we move our selection to the cell on the right of the current
- *     </li>
- *     <li>
- *         The "bottom" state that represents what happens if we move our selection to the cell on the bottom of the current
- *     </li>
- * </ul>
+ * The Node also contains a pointer reference to the previous state,
+ * in order to know the difference between states. The states reached moving
+ * the selection to the right or to the bottom are explored by the {@link Slicer},
+ * that reuses the same nodes for every branch of the tree.
+ *
+ * The toppings of every type are counted when the node is moved, in an array indexed
+ * by the topping ordinal: since a node only differs from the previous one by a row or
+ * a column, its counts are those of the previous node plus the toppings of the new row
+ * or column, read from the prefix sums of the pizza. The weight is
+ * calculated lazily, the first time it is needed: feasibility only depends on the
+ * topping counts, and the slicer doesn't need the weight of the nodes it can
+ * discard with {@link #getMinWeight()}.
  *
  * @author Luca Di Stefano
  */
-public class Node implements Comparable<Node> {
-
-    private static final Node NULL_NODE = null;
-    private static final Cell NULL_CELL = null;
+public class Node {
 
     int startX, startY, endX, endY;
+    private int[] counts;
+    private int[] required;
+    private int[] byAbundance;
+    private boolean mushroomsAndTomatoes;
     private double weight;
+    private boolean weighed;
     private Slicer slicer;
-    private Node previous, right, bottom;
+    private Node previous;
 
-    Node(Cell start, Slicer slicer) {
-        this(start, NULL_CELL, slicer, NULL_NODE);
+    Node(Slicer slicer) {
+        this.slicer = slicer;
+        counts = new int[slicer.getPizza().getToppingTypes().length];
+        required = slicer.getPizza().getRequiredToppings();
+        byAbundance = new int[required.length];
+        mushroomsAndTomatoes = required.length == 2
+                && required[0] == MUSHROOM.ordinal() && required[1] == TOMATO.ordinal();
     }
 
     /**
-     * In the constructor the basic fields are assigned and the weight is calculated,
-     * then the referring left and bottom nodes are built recursively until
-     * there is any sense in doing so.
+     * Moves the node to a new selection: the basic fields are assigned and the toppings
+     * are counted, while the weight will be calculated when needed.
      *
-     * @param start the starting cell.
-     * @param end the ending cell. If it is null, we consider that it's the same as start.
-     * @param slicer the main object that is doing the slicing
-     * @param previous pointer to the previous element in the tree
+     * @param startX the starting row
+     * @param startY the starting column
+     * @param endX the ending row
+     * @param endY the ending column
+     * @param previous pointer to the previous element in the tree, or null for the root
      */
-    private Node(Cell start, Cell end, Slicer slicer, Node previous) {
-        startX = start.x;
-        startY = start.y;
-        if (end == null)
-            end = start;
-        endX = end.x;
-        endY = end.y;
-
-        this.slicer = slicer;
+    void set(int startX, int startY, int endX, int endY, Node previous) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
         this.previous = previous;
-        weight = getWeightInternal();
-
-        Cell rightCell = slicer.getPizza().getRightNode(end);
-        if (rightCell != null && getSliceArea(start, rightCell) <= slicer.getPizza().getMaxSize() && !slicer.getPizza().hasEmptyCells(start, rightCell))
-            right = new Node(start, rightCell, slicer, this);
-
-        Cell bottomCell = slicer.getPizza().getBottomNode(end);
-        if (bottomCell != null && getSliceArea(start, bottomCell) <= slicer.getPizza().getMaxSize() && !slicer.getPizza().hasEmptyCells(start, bottomCell))
-            bottom = new Node(start, bottomCell, slicer, this);
+        weighed = false;
+
+        Pizza pizza = slicer.getPizza();
+        for (int t = 0; t < counts.length; t++) {
+            if (previous == null)
+                counts[t] = pizza.getToppingCount(t, startX, startY, endX, endY);
+            else if (endY != previous.endY)
+                counts[t] = previous.counts[t] + pizza.getToppingCount(t, startX, endY, endX, endY);
+            else
+                counts[t] = previous.counts[t] + pizza.getToppingCount(t, endX, startY, endX, endY);
+        }
     }
 
     /**
@@ -86,14 +93,10 @@ public class Node implements Comparable<Node> {
      * @return the calculated weight, that can be either "minus infinite" as in -Double.MAX_VALUE or a double
      */
     private double getWeightInternal() {
-        if (previous == null)
-            return -MAX_VALUE;
-        if (getSliceArea(startCell(), endCell()) > slicer.getPizza().getMaxSize())
-            return -MAX_VALUE; // Unfeasible solution
-        if (!minIngredientReached(TOMATO) || !minIngredientReached(MUSHROOM))
+        if (!isFeasible())
             return -MAX_VALUE; // Unfeasible solution
 
-        return (previous != null && previous.isFeasible() ? previous.getWeight() : 0) + getOwnWeight();
+        return (previous.isFeasible() ? previous.getWeight() : 0) + getOwnWeight();
     }
 
     /**
@@ -139,6 +142,11 @@ public class Node implements Comparable<Node> {
      *         The weight of this particular case will be 1 - x where x < 1, so there will be always a weight increase.
      *
      *         The opposite reasoning is done with having more mushrooms.<br />
+     *         With other kinds of toppings the penalty follows the abundance: removing a topping is penalized
+     *         if less of it remains than the median remaining quantity (the upper one, with an even number
+     *         of kinds), and rewarded otherwise.<br />
+     *         In both cases the ratios are added starting from the topping with more toppings remaining,
+     *         and nothing is added if the same quantity of every topping remains.<br />
      *     </li>
      *     <li>
      *         To avoid waste, if we're going in the only possible direction, we must increase the
@@ -163,132 +171,135 @@ public class Node implements Comparable<Node> {
     private double getOwnWeight() {
         double tmp = 0;
 
-
-        if (!previous.minIngredientReached(TOMATO) || !previous.minIngredientReached(MUSHROOM)) {
-            if (!previous.minIngredientReached(TOMATO)) {
-                if (getToppingCount(TOMATO) > previous.getToppingCount(TOMATO))
-                    tmp++;
-            }
-            if (!previous.minIngredientReached(MUSHROOM)) {
-                if (getToppingCount(MUSHROOM) > previous.getToppingCount(MUSHROOM))
-                    tmp++;
-            }
+        for (int t : required) {
+            if (!previous.minIngredientReached(t) && counts[t] > previous.counts[t])
+                tmp++;
         }
 
-        if (minIngredientReached(TOMATO) && minIngredientReached(MUSHROOM)){
-
-            double tomatoDiff = getRemaining(TOMATO) - previous.getRemaining(TOMATO);
-            double mushDiff = getRemaining(MUSHROOM) - previous.getRemaining(MUSHROOM);
-
-            double tRatio = tomatoDiff / previous.getRemaining(TOMATO);
-            double mRatio = mushDiff / previous.getRemaining(MUSHROOM);
-
-            if (previous.getRemaining(TOMATO) > previous.getRemaining(MUSHROOM)) {
-                if (tomatoDiff < 0)
-                    tmp -= tRatio;
-                if (mushDiff < 0)
-                    tmp += mRatio;
-            }
-
-            if (previous.getRemaining(MUSHROOM) > previous.getRemaining(TOMATO)) {
-                if (mushDiff < 0)
-                    tmp += mRatio;
-                if (tomatoDiff < 0)
-                    tmp -= tRatio;
+        // The own weight is only calculated for feasible nodes, that have enough ingredients of every kind
+        if (previous.sortByAbundance()) {
+            int median = previous.getRemaining(previous.byAbundance[(byAbundance.length - 1) / 2]);
+            for (int t : previous.byAbundance) {
+                int removed = counts[t] - previous.counts[t];
+                if (removed > 0) {
+                    double ratio = (double) removed / previous.getRemaining(t);
+                    boolean scarce = mushroomsAndTomatoes ? t == MUSHROOM.ordinal() : previous.getRemaining(t) < median;
+                    tmp += scarce ? -ratio : ratio;
+                }
             }
+        }
 
-            if (slicer.getPizza().getRightNode(endCell()) == null || slicer.getPizza().getBottomNode(endCell()) == null) {
-                tmp++;
-            }
+        if (slicer.getPizza().getRightNode(endCell()) == null || slicer.getPizza().getBottomNode(endCell()) == null) {
+            tmp++;
         }
 
         return tmp;
     }
 
     /**
-     * Calculates the toppings that would remain after the slice has been cut
+     * Sorts the ordinals of the toppings in the map from the one with more toppings remaining to the
+     * one with less (the lowest ordinal first in case of ties).
      *
-     * @param t the topping type
-     * @return the number of toppings
+     * @return false if all the toppings have the same remaining quantity
      */
-    private int getRemaining(Topping t) {
-        return slicer.getPizza().getRemainingToppings(t, startCell(), endCell());
+    private boolean sortByAbundance() {
+        if (byAbundance.length == 0)
+            return false;
+        for (int i = 0; i < byAbundance.length; i++) {
+            int remaining = getRemaining(required[i]);
+            int j = i;
+            for (; j > 0 && getRemaining(byAbundance[j - 1]) < remaining; j--)
+                byAbundance[j] = byAbundance[j - 1];
+            byAbundance[j] = required[i];
+        }
+        return getRemaining(byAbundance[0]) != getRemaining(byAbundance[byAbundance.length - 1]);
     }
 
     /**
-     * Calculates the topping count for the current slice of pizza
+     * Calculates the toppings that would remain after the slice has been cut
      *
-     * @param t the topping type
-     * @return toppings in current selection
+     * @param t the ordinal of the topping type
+     * @return the number of toppings
      */
-    private int getToppingCount(Topping t) {
-        return slicer.getPizza().getToppingCount(t, startCell(), endCell());
+    private int getRemaining(int t) {
+        return slicer.getPizza().getToppings(t) - counts[t];
     }
 
     /**
      * Indicates whether we've reached the minimum quantity of needed topping of type t
      *
-     * @param t the topping type
+     * @param t the ordinal of the topping type
      * @return if we have enough toppings of type t in the current slice simulation
      */
-    private boolean minIngredientReached(Topping t) {
-        return getToppingCount(t) >= slicer.getPizza().getMinIngredient();
+    private boolean minIngredientReached(int t) {
+        return counts[t] >= slicer.getPizza().getMinIngredient();
     }
 
     /**
      * Calculates the area of the slice in the current simulation
      *
-     * @param start the starting cell
-     * @param end the ending cell
      * @return area of the slice
      */
-    private int getSliceArea(Cell start, Cell end) {
-        return Math.abs(start.x - (end.x + 1)) * Math.abs(start.y - (end.y + 1));
+    private int getSliceArea() {
+        return (endX - startX + 1) * (endY - startY + 1);
     }
 
     /**
-     * Gives an immediate indication of the feasibility of the solution
+     * Gives an immediate indication of the feasibility of the solution, without calculating
+     * the weight: the first node, slices bigger than the max size and slices without
+     * enough toppings are not feasible.
      *
-     * @return the current <code>weight == Double.MAX_VALUE</code>
+     * @return true if the weight is not "minus infinite"
      */
     boolean isFeasible() {
-        return getWeight() != -MAX_VALUE;
-    }
-
-    /**
-     * Gets the weight of the current node
-     *
-     * @return the weight
-     */
-    double getWeight() {
-        return weight;
+        if (previous == null || getSliceArea() > slicer.getPizza().getMaxSize())
+            return false;
+        for (int t : required) {
+            if (!minIngredientReached(t))
+                return false;
+        }
+        return true;
     }
 
     /**
-     * Gets node of the tree that represents the selection moving to the right of the current cell
+     * Indicates whether a feasible slice can still be reached adding rows and columns to the
+     * current one: the toppings still missing must fit in the cells that can be added
+     * before reaching the max size.
      *
-     * @return a slice simulation
+     * @return false if all the nodes below this one are not feasible
      */
-    Node getRight() {
-        return right;
+    boolean canBecomeFeasible() {
+        int min = slicer.getPizza().getMinIngredient();
+        int missing = 0;
+        for (int t : required)
+            missing += Math.max(0, min - counts[t]);
+        return missing <= slicer.getPizza().getMaxSize() - getSliceArea();
     }
 
     /**
-     * Gets node of the tree that represents the selection moving to the bottom of the current cell
+     * Gets the weight of the current node, calculating it the first time
      *
-     * @return a slice simulation
+     * @return the weight
      */
-    Node getBottom() {
-        return bottom;
+    double getWeight() {
+        if (!weighed) {
+            weight = getWeightInternal();
+            weighed = true;
+        }
+        return weight;
     }
 
     /**
-     * Utility method to get the starting cell
+     * Gets a lower bound of the weight of a feasible node without calculating its own weight,
+     * that is never less than minus the kinds of toppings that can be penalized: each penalty
+     * is the ratio of the remaining toppings of a kind that are removed, at most all of them.
+     * Only mushrooms are penalized on a pizza of mushrooms and tomatoes, otherwise the
+     * kinds below the median, at most half of them.
      *
-     * @return a pizza cell
+     * @return a value that is not greater than the weight
      */
-    private Cell startCell() {
-        return new Cell(startX, startY);
+    double getMinWeight() {
+        return (previous.isFeasible() ? previous.getWeight() : 0) - (mushroomsAndTomatoes ? 1 : required.length / 2);
     }
 
     /**
@@ -299,28 +310,4 @@ public class Node implements Comparable<Node> {
     private Cell endCell() {
         return new Cell(endX, endY);
     }
-
-    @Override
-    public int compareTo(Node o) {
-        return Double.valueOf(getWeight()).compareTo(o.getWeight());
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (!(o instanceof Node)) return false;
-
-        Node node = (Node) o;
-
-        return startX == node.startX && startY == node.startY && endX == node.endX && endY == node.endY;
-    }
-
-    @Override
-    public int hashCode() {
-        int result = startX;
-        result = 31 * result + startY;
-        result = 31 * result + endX;
-        result = 31 * result + endY;
-        return result;
-    }
 }
@@ -1,6 +1,7 @@
 package it.karatekide.pizza.tree;
 
 import lombok.Getter;
+import lombok.Setter;
 
 import java.util.*;
 
@@ -15,9 +16,27 @@ import static it.karatekide.pizza.tree.Topping.TOMATO;
  *
  * It also contains useful methods to count remaining toppings and to
  * produce a graphical representation of the fractionated pizza.
+ *
+ * A pizza can have any number of topping types: mushrooms ("M") and tomatoes ("T")
+ * always have the first two ordinals, every other character of the map is a new
+ * topping. Slices always need the minimum ingredients of mushrooms and tomatoes when the
+ * map has no other topping, otherwise of every topping found in the map. The toppings
+ * needed are decided when the map is read, and don't change afterwards.
+ * Toppings are counted in arrays indexed by their ordinal: one with the toppings left
+ * in the pizza, and the prefix sums of every row and every column per topping, to count
+ * the toppings of a row or a column of any slice in constant time. Prefix sums are
+ * kept for cut cells too, so that cut slices can be put back, and changing a topping
+ * only updates the sums of its row and its column.
  * (It is suggested not to print the graphical representation if the slices
  * are more than 90 or so, to avoid strange characters being printed).
  *
+ * Cut slices are kept in a {@link SliceIndex}, that can be queried for the
+ * slices around a cell or inside an area.
+ *
+ * Cuts and waste are notified to the {@link SlicingListener} set on the pizza,
+ * and every cut is also published as a Flight Recorder event. The cells of
+ * some slices can be printed as they are cut with {@link SliceProbes}.
+ *
  * @author Luca Di Stefano
  */
 public class Pizza {
@@ -33,12 +52,21 @@ public class Pizza {
     @Getter
     private Topping[][] pizza;
 
-    private List<Integer> probes = new ArrayList<>();
+    @Getter
+    @Setter
+    private SlicingListener listener = SlicingListener.NONE;
+
+    @Getter
+    private SliceIndex slices;
 
-    private String[][] sliceDesc;
-    private int lastSlice = 0;
+    private int firstFree = 0;
 
-    private Map<Topping, Integer> allToppings = new HashMap<>();
+    @Getter
+    private Topping[] toppingTypes;
+    @Getter
+    private int[] requiredToppings;
+    private int[] allToppings;
+    private int[][] rowSums, colSums;
 
     /**
      * Instantiates the pizza from the file content
@@ -46,8 +74,7 @@ public class Pizza {
      * @param description the file content with the pizza description and requirements
      */
     public Pizza(String description) {
-        allToppings.put(MUSHROOM, 0);
-        allToppings.put(TOMATO, 0);
+        List<Topping> types = new ArrayList<>(Arrays.asList(MUSHROOM, TOMATO));
 
         Scanner s = new Scanner(description);
         String[] init = s.nextLine().split(" ");
@@ -58,34 +85,109 @@ public class Pizza {
         maxSize = Integer.parseInt(init[3]);
 
         pizza = new Topping[rows][cols];
-        sliceDesc = new String[rows][cols];
+        slices = new SliceIndex(rows, cols, maxSize);
 
         int row = 0;
         while (s.hasNextLine()) {
             String pizzaLine = s.nextLine();
             for (int col = 0; col < pizzaLine.length(); col++) {
-                Topping t = (pizzaLine.charAt(col) == 'T' ? TOMATO : MUSHROOM);
-                pizza[row][col] = t;
-                allToppings.replace(t, allToppings.get(t) + 1);
+                pizza[row][col] = getTopping(types, pizzaLine.charAt(col));
             }
             row++;
         }
 
         s.close();
+
+        toppingTypes = types.toArray(new Topping[types.size()]);
+        allToppings = new int[toppingTypes.length];
+        rowSums = new int[toppingTypes.length][rows * (cols + 1)];
+        colSums = new int[toppingTypes.length][cols * (rows + 1)];
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                int r = x * (cols + 1) + y + 1;
+                int c = y * (rows + 1) + x + 1;
+                for (int t = 0; t < toppingTypes.length; t++) {
+                    rowSums[t][r] = rowSums[t][r - 1];
+                    colSums[t][c] = colSums[t][c - 1];
+                }
+                if (pizza[x][y] != null) {
+                    allToppings[pizza[x][y].ordinal()]++;
+                    rowSums[pizza[x][y].ordinal()][r]++;
+                    colSums[pizza[x][y].ordinal()][c]++;
+                }
+            }
+        }
+        requiredToppings = getRequiredToppings(allToppings);
     }
 
     /**
-     * Cuts a slice, removing toppings from the map,
-     * updates the graphical map representation and
-     * returns the slice information
+     * Finds the toppings that slices need: mushrooms and tomatoes, as the problem
+     * requires, if the map has no other topping, otherwise the ones that are in the map
      *
-     * @param node the node that simulates the cut
-     * @return the slice represented by the node
+     * @param counts the toppings of every type in the map
+     * @return the ordinals of the toppings needed
      */
-    Slice cut(Node node) {
-        Slice slice = new Slice(new Cell(node.startX, node.startY), new Cell(node.endX, node.endY));
-        cut(slice);
-        return slice;
+    private static int[] getRequiredToppings(int[] counts) {
+        if (counts.length == 2)
+            return new int[]{MUSHROOM.ordinal(), TOMATO.ordinal()};
+
+        int required = 0;
+        for (int count : counts) {
+            if (count > 0)
+                required++;
+        }
+        int[] toppings = new int[required];
+        for (int t = 0, i = 0; t < counts.length; t++) {
+            if (counts[t] > 0)
+                toppings[i++] = t;
+        }
+        return toppings;
+    }
+
+    /**
+     * Gets the topping of a character of the map, creating a new topping
+     * the first time an unknown character is found
+     *
+     * @param types the toppings found so far, in ordinal order
+     * @param value the character of the map
+     * @return the topping
+     */
+    private static Topping getTopping(List<Topping> types, char value) {
+        for (Topping t : types) {
+            if (t.getValue().charAt(0) == value)
+                return t;
+        }
+        Topping t = new Topping(String.valueOf(value), types.size());
+        types.add(t);
+        return t;
+    }
+
+    /**
+     * Copies a pizza in its current state, so that the copy can be sliced
+     * independently from the original. The listener is not copied.
+     *
+     * @param other the pizza to copy
+     */
+    public Pizza(Pizza other) {
+        minIngredient = other.minIngredient;
+        maxSize = other.maxSize;
+        waste = other.waste;
+        firstFree = other.firstFree;
+        slices = new SliceIndex(other.slices);
+        toppingTypes = other.toppingTypes;
+        requiredToppings = other.requiredToppings;
+        allToppings = other.allToppings.clone();
+        rowSums = new int[other.rowSums.length][];
+        colSums = new int[other.colSums.length][];
+        for (int t = 0; t < rowSums.length; t++) {
+            rowSums[t] = other.rowSums[t].clone();
+            colSums[t] = other.colSums[t].clone();
+        }
+
+        pizza = new Topping[other.pizza.length][];
+        for (int row = 0; row < pizza.length; row++) {
+            pizza[row] = other.pizza[row].clone();
+        }
     }
 
     /**
@@ -97,57 +199,66 @@ public class Pizza {
      */
     void waste(int row, int col) {
         pizza[row][col] = null;
-        sliceDesc[row][col] = WASTED_PIZZA;
         waste++;
+        listener.cellWasted(row, col);
     }
 
     /**
-     * Does the actual cutting of the slice, removing toppings from the map,
-     * updating the graphical map representation and
-     * returning the slice information
+     * Does the actual cutting of the slice, removing toppings from the map
+     * and recording the slice in the slice index
      *
      * @param slice the slice to cut
      */
-    private void cut(Slice slice) {
+    void cut(Slice slice) {
         int startX = slice.start.x;
         int endX = slice.end.x;
         int startY = slice.start.y;
         int endY = slice.end.y;
 
-        if (probes.contains(lastSlice)) {
-            System.out.println("Processing slice " + getPizzaChar(lastSlice));
-        }
+        SliceCutEvent event = new SliceCutEvent();
+        event.begin();
 
+        int lastSlice = slices.size();
         for (int row = startX; row <= endX; row++) {
             for (int col = startY; col <= endY; col++) {
                 Topping t = pizza[row][col];
                 if (t != null) {
-                    allToppings.replace(t, allToppings.get(t) - 1);
+                    allToppings[t.ordinal()]--;
                     pizza[row][col] = null;
-                    sliceDesc[row][col] = getPizzaChar(lastSlice);
-                    if (probes.contains(lastSlice)) {
-                        System.out.print("(" + t.getValue() + " " + row + "x" + col + ")");
-                    }
                 }
             }
-            if (probes.contains(lastSlice)) {
-                System.out.println();
-            }
         }
-        lastSlice++;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.slice = lastSlice;
+            event.startRow = startX;
+            event.startCol = startY;
+            event.endRow = endX;
+            event.endCol = endY;
+            event.area = (endX - startX + 1) * (endY - startY + 1);
+            event.commit();
+        }
+
+        slices.add(slice);
+        listener.sliceCut(slice);
     }
 
     /**
-     * Gets the first top-left free cell
+     * Gets the first top-left free cell.
      *
-     * @return a cell indication
+     * The search starts from the last free cell found instead of the top-left corner:
+     * cells can only be put back with {@link #uncut(int)} and {@link #unwaste(int, int)},
+     * that move the search back if needed.
+     *
+     * @return a cell indication, or null if there are no free cells
      */
     Cell getFirstCell() {
-        for (int row = 0; row < pizza.length; row++) {
-            for (int col = 0; col < pizza[row].length; col++) {
-                if (pizza[row][col] != null)
-                    return new Cell(row, col);
-            }
+        for (; firstFree < pizza.length * pizza[0].length; firstFree++) {
+            int row = firstFree / pizza[0].length;
+            int col = firstFree % pizza[0].length;
+            if (pizza[row][col] != null)
+                return new Cell(row, col);
         }
         return null;
     }
@@ -155,43 +266,117 @@ public class Pizza {
     /**
      * Calculates how many toppings of a kind are in the pizza
      *
-     * @param topping the topping type
+     * @param topping the ordinal of the topping type
      * @return quantity of topping
      */
-    private int getToppings(Topping topping) {
-        return allToppings.get(topping);
+    int getToppings(int topping) {
+        return allToppings[topping];
     }
 
     /**
-     * Calculates how many toppings there are in a determined slice of pizza
+     * Calculates how many toppings of a kind there are in an area of the pizza
+     * that has not been cut, in constant time if the area is a row or a column
      *
-     * @param topping type of topping
-     * @param start starting cell of the selection
-     * @param end ending cell of the selection
+     * @param topping the ordinal of the topping type
+     * @param fromX first row of the area
+     * @param fromY first column of the area
+     * @param toX last row of the area
+     * @param toY last column of the area
      * @return the number of toppings
      */
-    Integer getToppingCount(Topping topping, Cell start, Cell end) {
-        int partial = 0;
-        for (int x = start.x; x <= end.x; x++) {
-            for (int y = start.y; y <= end.y; y++) {
-                if (pizza[x][y] == topping)
-                    partial++;
+    int getToppingCount(int topping, int fromX, int fromY, int toX, int toY) {
+        if (fromY == toY) {
+            int[] sums = colSums[topping];
+            int i = fromY * (pizza.length + 1);
+            return sums[i + toX + 1] - sums[i + fromX];
+        }
+        int[] sums = rowSums[topping];
+        int count = 0;
+        for (int x = fromX; x <= toX; x++) {
+            int i = x * (pizza[0].length + 1);
+            count += sums[i + toY + 1] - sums[i + fromY];
+        }
+        return count;
+    }
+
+    /**
+     * Gets the topping of a cell, even if it has been cut or wasted
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the topping, or null if the map had no topping in the cell
+     */
+    Topping getOriginalTopping(int row, int col) {
+        int i = row * (pizza[0].length + 1) + col;
+        for (int t = 0; t < toppingTypes.length; t++) {
+            if (rowSums[t][i + 1] != rowSums[t][i])
+                return toppingTypes[t];
+        }
+        return null;
+    }
+
+    /**
+     * Changes the topping of a free cell, updating the counters and the prefix sums
+     * of its row and its column. The toppings needed by the slices don't change, even if
+     * the last topping of a kind is replaced.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param topping the new topping, one of the topping types of the pizza
+     */
+    void setTopping(int row, int col, Topping topping) {
+        if (pizza[row][col] == null)
+            throw new IllegalStateException("Cell " + row + "x" + col + " has been cut or wasted");
+        if (topping.ordinal() >= toppingTypes.length || toppingTypes[topping.ordinal()] != topping)
+            throw new IllegalArgumentException("Unknown topping " + topping);
+
+        int from = pizza[row][col].ordinal();
+        int to = topping.ordinal();
+        pizza[row][col] = topping;
+        allToppings[from]--;
+        allToppings[to]++;
+
+        int rows = pizza.length;
+        int cols = pizza[0].length;
+        for (int y = col + 1; y <= cols; y++) {
+            rowSums[from][row * (cols + 1) + y]--;
+            rowSums[to][row * (cols + 1) + y]++;
+        }
+        for (int x = row + 1; x <= rows; x++) {
+            colSums[from][col * (rows + 1) + x]--;
+            colSums[to][col * (rows + 1) + x]++;
+        }
+    }
+
+    /**
+     * Puts a cut slice back on the pizza, with its toppings
+     *
+     * @param id the id of the slice in the slice index
+     */
+    void uncut(int id) {
+        Slice slice = slices.getSlice(id);
+        for (int row = slice.start.x; row <= slice.end.x; row++) {
+            for (int col = slice.start.y; col <= slice.end.y; col++) {
+                pizza[row][col] = getOriginalTopping(row, col);
+                allToppings[pizza[row][col].ordinal()]++;
             }
         }
-        return partial;
+        slices.remove(id);
+        firstFree = Math.min(firstFree, slice.start.x * pizza[0].length + slice.start.y);
+        listener.sliceRemoved(slice);
     }
 
     /**
-     * Calculates how many toppings of a type will remain if we remove
-     * a particular slice of pizza
+     * Puts a wasted cell back on the pizza
      *
-     * @param topping type of topping
-     * @param start starting cell of the selection
-     * @param end ending cell of the selection
-     * @return the number of toppings
+     * @param row the row of the cell
+     * @param col the column of the cell
      */
-    int getRemainingToppings(Topping topping, Cell start, Cell end) {
-        return getToppings(topping) - getToppingCount(topping, start, end);
+    void unwaste(int row, int col) {
+        pizza[row][col] = getOriginalTopping(row, col);
+        waste--;
+        firstFree = Math.min(firstFree, row * pizza[0].length + col);
+        listener.cellRestored(row, col);
     }
 
     /**
@@ -220,9 +405,18 @@ public class Pizza {
         return null;
     }
 
-    boolean hasEmptyCells(Cell from, Cell to) {
-        for (int x = from.x; x <= to.x; x++) {
-            for (int y = from.y; y <= to.y; y++) {
+    /**
+     * Indicates whether some cells of an area have already been cut or wasted
+     *
+     * @param fromX first row of the area
+     * @param fromY first column of the area
+     * @param toX last row of the area
+     * @param toY last column of the area
+     * @return true if at least one cell has no topping
+     */
+    boolean hasEmptyCells(int fromX, int fromY, int toX, int toY) {
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
                 if (pizza[x][y] == null)
                     return true;
             }
@@ -236,15 +430,7 @@ public class Pizza {
      * @return boolean
      */
     public boolean isEmpty() {
-        boolean tmp = true;
-
-        for (Topping[] pRow : pizza) {
-            for (Topping pCol : pRow) {
-                tmp = (tmp && pCol == null);
-            }
-        }
-
-        return tmp;
+        return getFirstCell() == null;
     }
 
     /**
@@ -255,9 +441,13 @@ public class Pizza {
      */
     public String getSliceDesc() {
         StringBuilder sb = new StringBuilder("~~~~~~~ HERE IS YOUR PIZZA ~~~~~~~\n");
-        for (String[] rows: sliceDesc) {
-            for (String cell: rows) {
-                sb.append(cell);
+        for (int row = 0; row < pizza.length; row++) {
+            for (int col = 0; col < pizza[row].length; col++) {
+                int slice = slices.sliceAt(row, col);
+                if (slice != SliceIndex.NONE)
+                    sb.append(getPizzaChar(slice));
+                else
+                    sb.append(pizza[row][col] == null ? WASTED_PIZZA : null);
             }
             sb.append("\n");
         }
@@ -291,13 +481,4 @@ public class Pizza {
     private String getPizzaChar(int lastSlice) {
         return "(" + String.format("%05d", lastSlice) + ")";
     }
-
-    public void addProbe(int sliceNum) {
-        probes.add(sliceNum);
-    }
-
-    public void addProbes(int... slices) {
-        for (Integer s: slices)
-            addProbe(s);
-    }
 }
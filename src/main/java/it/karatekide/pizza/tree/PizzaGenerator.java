@@ -0,0 +1,162 @@
+package it.karatekide.pizza.tree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Generates synthetic pizzas in the same format of the input files,
+ * so that the slicer can be tried on sizes and shapes that the
+ * provided data sets don't cover.
+ *
+ * The generation is deterministic: the same seed and the same parameters
+ * always produce the same pizza. Toppings are drawn so that the expected
+ * share of tomatoes is the tomato ratio, while the clustering tells how
+ * likely a cell is to just copy the topping of the cell on its left or on
+ * its top instead of drawing a new one (0 means toppings are independent,
+ * values towards 1 produce big areas of the same topping).
+ *
+ * Rows are generated one at a time, so pizzas up to 10'000 x 10'000 can be
+ * streamed to a file with {@link #write(Appendable)} without keeping
+ * them in memory.
+ *
+ * @author Luca Di Stefano
+ */
+public class PizzaGenerator {
+
+    public static final int MAX_SIDE = 10000;
+
+    private final long seed;
+    private int rows = 100;
+    private int cols = 100;
+    private double tomatoRatio = 0.5;
+    private double clustering = 0;
+    private int minIngredient = 1;
+    private int maxSize = 6;
+
+    /**
+     * Creates a generator of 100 x 100 pizzas with independent toppings,
+     * half of which are tomatoes, at least 1 ingredient per type and
+     * slices of 6 cells at most.
+     *
+     * @param seed the seed of the random generation
+     */
+    public PizzaGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public PizzaGenerator rows(int rows) {
+        if (rows < 1 || rows > MAX_SIDE)
+            throw new IllegalArgumentException("Rows must be between 1 and " + MAX_SIDE + ": " + rows);
+        this.rows = rows;
+        return this;
+    }
+
+    public PizzaGenerator cols(int cols) {
+        if (cols < 1 || cols > MAX_SIDE)
+            throw new IllegalArgumentException("Columns must be between 1 and " + MAX_SIDE + ": " + cols);
+        this.cols = cols;
+        return this;
+    }
+
+    public PizzaGenerator tomatoRatio(double tomatoRatio) {
+        if (tomatoRatio < 0 || tomatoRatio > 1)
+            throw new IllegalArgumentException("Tomato ratio must be between 0 and 1: " + tomatoRatio);
+        this.tomatoRatio = tomatoRatio;
+        return this;
+    }
+
+    public PizzaGenerator clustering(double clustering) {
+        if (clustering < 0 || clustering >= 1)
+            throw new IllegalArgumentException("Clustering must be between 0 (included) and 1 (excluded): " + clustering);
+        this.clustering = clustering;
+        return this;
+    }
+
+    public PizzaGenerator minIngredient(int minIngredient) {
+        if (minIngredient < 1)
+            throw new IllegalArgumentException("Minimum ingredients must be positive: " + minIngredient);
+        this.minIngredient = minIngredient;
+        return this;
+    }
+
+    public PizzaGenerator maxSize(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Max slice size must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Generates the pizza description
+     *
+     * @return the description, as it would be read from an input file
+     */
+    public String generate() {
+        StringBuilder sb = new StringBuilder((rows + 1) * (cols + 1) + 32);
+        write(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Generates the pizza
+     *
+     * @return a new pizza, ready to be sliced
+     */
+    public Pizza toPizza() {
+        return new Pizza(generate());
+    }
+
+    /**
+     * Writes the pizza description, one row at a time
+     *
+     * @param out where to write the description
+     */
+    public void write(Appendable out) {
+        Random random = new Random(seed);
+        char[] previous = null;
+        char[] line = new char[cols];
+
+        try {
+            out.append(String.valueOf(rows)).append(' ')
+                    .append(String.valueOf(cols)).append(' ')
+                    .append(String.valueOf(minIngredient)).append(' ')
+                    .append(String.valueOf(maxSize)).append('\n');
+
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    line[col] = nextTopping(random, col > 0 ? line[col - 1] : 0, previous != null ? previous[col] : 0);
+                }
+                out.append(new String(line)).append('\n');
+
+                char[] tmp = previous == null ? new char[cols] : previous;
+                previous = line;
+                line = tmp;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Draws the topping of a cell.
+     * With a probability equal to the clustering the topping is copied from
+     * one of the neighbours that have already been generated, otherwise it
+     * is a tomato with a probability equal to the tomato ratio.
+     *
+     * @param random the random generator
+     * @param left the topping on the left, or 0 if there is none
+     * @param top the topping on the top, or 0 if there is none
+     * @return the topping character
+     */
+    private char nextTopping(Random random, char left, char top) {
+        if (clustering > 0 && (left != 0 || top != 0) && random.nextDouble() < clustering) {
+            if (left == 0)
+                return top;
+            if (top == 0)
+                return left;
+            return random.nextBoolean() ? left : top;
+        }
+        return random.nextDouble() < tomatoRatio ? 'T' : 'M';
+    }
+}
@@ -0,0 +1,202 @@
+package it.karatekide.pizza.tree;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the greedy slicing several times with randomized choices, in parallel,
+ * and keeps the best solution.
+ *
+ * Every run (restart) slices its own copy of the pizza, and is fully determined
+ * by its seed: the seed chooses the {@link ScanOrder} of the starting cells
+ * (and the order of the blocks, if random) and breaks the ties between nodes
+ * with the same weight. A good run can therefore be replayed with
+ * {@link #run(long)} passing the seed of its {@link Restart}.
+ *
+ * As soon as a run reaches the {@link CoverageBound} of the pizza, the other
+ * runs are stopped since no better solution can be found.
+ *
+ * Every run is compared with the best one as soon as it ends, and only the best
+ * one is kept: at any time there are at most as many pizza copies as the runs
+ * in progress, plus the best one.
+ *
+ * @author Luca Di Stefano
+ */
+public class RandomRestarts {
+
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private Pizza pizza;
+    @Getter
+    private CoverageBound bound;
+
+    /**
+     * Prepares the restarts on a pizza
+     *
+     * @param pizza the pizza to slice, that will not be modified
+     */
+    public RandomRestarts(Pizza pizza) {
+        this.pizza = pizza;
+        this.bound = new CoverageBound(pizza);
+    }
+
+    /**
+     * Runs the restarts using all the available processors
+     *
+     * @param seed the seed from which the seeds of every run are derived
+     * @param restarts how many runs to do
+     * @return the run that used more cells (the first one in case of ties)
+     * @throws InterruptedException if interrupted while waiting for the runs
+     */
+    public Restart best(long seed, int restarts) throws InterruptedException {
+        return best(seed, restarts, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs the restarts
+     *
+     * @param seed the seed from which the seeds of every run are derived
+     * @param restarts how many runs to do
+     * @param threads how many runs to do concurrently
+     * @return the run that used more cells (the first one in case of ties)
+     * @throws InterruptedException if interrupted while waiting for the runs
+     */
+    public Restart best(long seed, int restarts, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, restarts)));
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            Best best = new Best();
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < restarts; i++) {
+                int index = i;
+                long runSeed = seed + i * SEED_GAMMA;
+                runs.add(executor.submit(() -> {
+                    Restart r = run(runSeed, stop);
+                    if (r != null) {
+                        if (bound.isReached(r.getUsed()))
+                            stop.set(true);
+                        best.offer(index, r);
+                    }
+                }));
+            }
+
+            for (Future<?> run : runs)
+                run.get();
+            return best.restart;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Does a single run, e.g. to replay the best one of {@link #best(long, int)}
+     *
+     * @param seed the seed of the run
+     * @return the result of the run
+     */
+    public Restart run(long seed) {
+        return run(seed, new AtomicBoolean());
+    }
+
+    /**
+     * Does a single run on a copy of the pizza, cutting a slice from every
+     * cell still available in the scan order chosen by the seed.
+     *
+     * Cells where no slice can start are only wasted right away if the order is
+     * {@link ScanOrder#isMonotone() monotone}: otherwise they are left on the pizza,
+     * and wasted by a last pass in row major order once all the cells have been visited.
+     *
+     * @param seed the seed of the run
+     * @param stop flag telling that the run is not needed anymore
+     * @return the result of the run, or null if it has been stopped
+     */
+    private Restart run(long seed, AtomicBoolean stop) {
+        Random random = new Random(seed);
+        ScanOrder order = ScanOrder.values()[random.nextInt(ScanOrder.values().length)];
+
+        Pizza copy = new Pizza(pizza);
+        Topping[][] map = copy.getPizza();
+        int cols = map[0].length;
+        int[] cells = order.cells(map.length, cols, Math.max(1, copy.getMaxSize()), random);
+
+        Slicer slicer = new Slicer(copy, random);
+        List<Slice> slices = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            if (i % STOP_CHECK_INTERVAL == 0 && stop.get())
+                return null;
+            int x = cells[i] / cols;
+            int y = cells[i] % cols;
+            if (map[x][y] != null) {
+                Slice s = order.isMonotone() ? slicer.getSlice(new Cell(x, y)) : slicer.trySlice(new Cell(x, y));
+                if (s != null)
+                    slices.add(s);
+            }
+        }
+        slices.addAll(slicer.sliceAll());
+        return new Restart(seed, order, slices, copy);
+    }
+
+    /**
+     * The best run found so far, updated by the runs as they end
+     */
+    private static class Best {
+        private Restart restart;
+        private int index;
+
+        /**
+         * Keeps a run if it used more cells than the best one, or as many cells
+         * but it was submitted before, so that the result doesn't depend on
+         * the order in which the runs end
+         *
+         * @param index the position of the run in submission order
+         * @param r the result of the run
+         */
+        synchronized void offer(int index, Restart r) {
+            if (restart == null || r.getUsed() > restart.getUsed()
+                    || (r.getUsed() == restart.getUsed() && index < this.index)) {
+                restart = r;
+                this.index = index;
+            }
+        }
+    }
+
+    /**
+     * The result of a single run
+     */
+    @Getter
+    public static class Restart {
+        private long seed;
+        private ScanOrder order;
+        private List<Slice> slices;
+        private Pizza pizza;
+
+        Restart(long seed, ScanOrder order, List<Slice> slices, Pizza pizza) {
+            this.seed = seed;
+            this.order = order;
+            this.slices = slices;
+            this.pizza = pizza;
+        }
+
+        /**
+         * Gets how many cells have been used by the run
+         *
+         * @return used cells
+         */
+        public int getUsed() {
+            return pizza.getUsed();
+        }
+    }
+}
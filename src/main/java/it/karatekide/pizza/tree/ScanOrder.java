@@ -0,0 +1,100 @@
+package it.karatekide.pizza.tree;
+
+import java.util.Random;
+
+/**
+ * The order in which the starting cells of the slices are visited.
+ *
+ * Slices always grow to the right and to the bottom of their starting cell,
+ * so the orders that work on blocks keep scanning the cells of each block
+ * row by row, and only change the order in which blocks are visited. Blocks
+ * are squares as big as the max slice size.
+ *
+ * @author Luca Di Stefano
+ */
+public enum ScanOrder {
+
+    /**
+     * Row by row, from left to right: the order of the basic greedy algorithm
+     */
+    ROW_MAJOR,
+
+    /**
+     * Column by column, from top to bottom
+     */
+    COLUMN_MAJOR,
+
+    /**
+     * Rows of blocks, alternately from left to right and from right to left
+     */
+    SERPENTINE,
+
+    /**
+     * Blocks in random order
+     */
+    RANDOM_BLOCKS;
+
+    /**
+     * Indicates whether every cell comes after the cells above it and to its left.
+     * Slices grow to the right and to the bottom, so in these orders a cell where no
+     * slice can start can't be covered by a slice starting later, and can be wasted.
+     *
+     * @return true for the row major and column major orders
+     */
+    boolean isMonotone() {
+        return this == ROW_MAJOR || this == COLUMN_MAJOR;
+    }
+
+    /**
+     * Gets the cells of a pizza in this order
+     *
+     * @param rows the rows of the pizza
+     * @param cols the columns of the pizza
+     * @param block the side of the blocks
+     * @param random the random generator used to shuffle blocks
+     * @return the cells, each one encoded as <code>row * cols + col</code>
+     */
+    int[] cells(int rows, int cols, int block, Random random) {
+        int[] cells = new int[rows * cols];
+        int i = 0;
+        switch (this) {
+            case ROW_MAJOR:
+                for (int c = 0; c < cells.length; c++)
+                    cells[c] = c;
+                return cells;
+            case COLUMN_MAJOR:
+                for (int y = 0; y < cols; y++) {
+                    for (int x = 0; x < rows; x++)
+                        cells[i++] = x * cols + y;
+                }
+                return cells;
+            default:
+                int blockRows = (rows + block - 1) / block;
+                int blockCols = (cols + block - 1) / block;
+                int[] blocks = new int[blockRows * blockCols];
+                for (int b = 0; b < blocks.length; b++) {
+                    int by = b % blockCols;
+                    if (this == SERPENTINE && (b / blockCols) % 2 == 1)
+                        by = blockCols - 1 - by;
+                    blocks[b] = (b / blockCols) * blockCols + by;
+                }
+                if (this == RANDOM_BLOCKS) {
+                    for (int b = blocks.length - 1; b > 0; b--) {
+                        int other = random.nextInt(b + 1);
+                        int tmp = blocks[b];
+                        blocks[b] = blocks[other];
+                        blocks[other] = tmp;
+                    }
+                }
+                for (int b : blocks) {
+                    int startX = (b / blockCols) * block;
+                    int startY = (b % blockCols) * block;
+                    for (int x = startX; x < Math.min(rows, startX + block); x++) {
+                        for (int y = startY; y < Math.min(cols, startY + block); y++)
+                            cells[i++] = x * cols + y;
+                    }
+                }
+                return cells;
+        }
+    }
+}
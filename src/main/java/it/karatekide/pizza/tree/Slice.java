@@ -12,7 +12,7 @@ import lombok.Setter;
 public class Slice {
     Cell start, end;
 
-    Slice(Cell start, Cell end) {
+    public Slice(Cell start, Cell end) {
         this.start = start;
         this.end = end;
     }
@@ -0,0 +1,38 @@
+package it.karatekide.pizza.tree;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted every time a slice is cut from the pizza.
+ * It is only recorded when a JFR recording with this event enabled is running.
+ *
+ * @author Luca Di Stefano
+ */
+@Name("it.karatekide.pizza.SliceCut")
+@Label("Slice Cut")
+@Category("Pizza")
+@Description("A slice has been cut from the pizza")
+class SliceCutEvent extends Event {
+
+    @Label("Slice Number")
+    int slice;
+
+    @Label("Start Row")
+    int startRow;
+
+    @Label("Start Column")
+    int startCol;
+
+    @Label("End Row")
+    int endRow;
+
+    @Label("End Column")
+    int endCol;
+
+    @Label("Area")
+    int area;
+}
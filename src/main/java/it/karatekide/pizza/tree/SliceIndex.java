@@ -0,0 +1,356 @@
+package it.karatekide.pizza.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact store of the slices cut from a pizza, that can tell which slice
+ * covers a cell and which slices are near a cell, a window or another slice.
+ *
+ * Slices are identified by the order in which they have been added (starting
+ * from 0) and their coordinates are kept in plain int arrays, one per coordinate.
+ * A removed slice keeps its id, that is never given to another slice.
+ * Every cell of the pizza holds the id of the slice covering it, or {@link #NONE}.
+ *
+ * The pizza is also divided in square buckets as wide as the max slice size, and
+ * every bucket holds the ids of the slices starting in it. A slice can't span more
+ * rows or columns than the max size, so the slices covering a window start in the
+ * buckets of the window or in the ones right above or to the left of it: windows
+ * are queried on those buckets only, and cost the slices starting there, not the
+ * cells of the window. Neighbours are found visiting the cells along the sides,
+ * jumping to the end of a slice as soon as they meet it.
+ *
+ * @author Luca Di Stefano
+ */
+public class SliceIndex {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int rows, cols;
+    private final int[] cells;
+    private final int bucketSide, bucketCols;
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+
+    private int[] startX, startY, endX, endY;
+    private int size = 0;
+
+    /**
+     * Creates an empty index for a pizza
+     *
+     * @param rows the rows of the pizza
+     * @param cols the columns of the pizza
+     * @param maxSize the max size of a slice
+     */
+    public SliceIndex(int rows, int cols, int maxSize) {
+        this.rows = rows;
+        this.cols = cols;
+        cells = new int[rows * cols];
+        Arrays.fill(cells, NONE);
+        // A bucket never needs to be larger than the pizza, and capping it avoids overflows with huge max sizes
+        bucketSide = Math.max(1, Math.min(maxSize, Math.max(rows, cols)));
+        bucketCols = (cols + bucketSide - 1) / bucketSide;
+        buckets = new int[((rows + bucketSide - 1) / bucketSide) * bucketCols][];
+        bucketSizes = new int[buckets.length];
+        startX = new int[INITIAL_CAPACITY];
+        startY = new int[INITIAL_CAPACITY];
+        endX = new int[INITIAL_CAPACITY];
+        endY = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Copies an index
+     *
+     * @param other the index to copy
+     */
+    SliceIndex(SliceIndex other) {
+        rows = other.rows;
+        cols = other.cols;
+        cells = other.cells.clone();
+        bucketSide = other.bucketSide;
+        bucketCols = other.bucketCols;
+        buckets = new int[other.buckets.length][];
+        for (int b = 0; b < buckets.length; b++) {
+            if (other.buckets[b] != null)
+                buckets[b] = other.buckets[b].clone();
+        }
+        bucketSizes = other.bucketSizes.clone();
+        startX = other.startX.clone();
+        startY = other.startY.clone();
+        endX = other.endX.clone();
+        endY = other.endY.clone();
+        size = other.size;
+    }
+
+    /**
+     * Adds a slice to the index. The slice must not overlap the slices already added,
+     * nor span more rows or columns than the max size.
+     *
+     * @param slice the slice
+     * @return the id of the slice
+     */
+    public int add(Slice slice) {
+        if (size == startX.length) {
+            int capacity = size * 2;
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            endX = Arrays.copyOf(endX, capacity);
+            endY = Arrays.copyOf(endY, capacity);
+        }
+
+        int id = size++;
+        startX[id] = slice.start.x;
+        startY[id] = slice.start.y;
+        endX[id] = slice.end.x;
+        endY[id] = slice.end.y;
+        for (int x = slice.start.x; x <= slice.end.x; x++) {
+            Arrays.fill(cells, x * cols + slice.start.y, x * cols + slice.end.y + 1, id);
+        }
+
+        int b = bucket(slice.start.x, slice.start.y);
+        if (buckets[b] == null)
+            buckets[b] = new int[4];
+        else if (bucketSizes[b] == buckets[b].length)
+            buckets[b] = Arrays.copyOf(buckets[b], bucketSizes[b] * 2);
+        buckets[b][bucketSizes[b]++] = id;
+        return id;
+    }
+
+    /**
+     * Removes a slice from the index. Its id is not reused.
+     *
+     * @param id the id of the slice
+     * @throws IllegalArgumentException if the slice has already been removed
+     */
+    public void remove(int id) {
+        checkNotRemoved(id);
+        for (int x = startX[id]; x <= endX[id]; x++) {
+            Arrays.fill(cells, x * cols + startY[id], x * cols + endY[id] + 1, NONE);
+        }
+
+        int b = bucket(startX[id], startY[id]);
+        for (int i = 0; i < bucketSizes[b]; i++) {
+            if (buckets[b][i] == id) {
+                buckets[b][i] = buckets[b][--bucketSizes[b]];
+                break;
+            }
+        }
+        startX[id] = endX[id] = NONE;
+    }
+
+    /**
+     * Indicates whether a slice has been removed
+     *
+     * @param id the id of the slice
+     * @return true if the slice has been removed
+     */
+    public boolean isRemoved(int id) {
+        return startX[id] == NONE;
+    }
+
+    private void checkNotRemoved(int id) {
+        if (isRemoved(id))
+            throw new IllegalArgumentException("Slice " + id + " has been removed");
+    }
+
+    /**
+     * Gets the slices that have not been removed, in the order they have been added
+     *
+     * @return the slices
+     */
+    public List<Slice> getSlices() {
+        List<Slice> slices = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (!isRemoved(id))
+                slices.add(getSlice(id));
+        }
+        return slices;
+    }
+
+    /**
+     * Gets how many slices have been added, including the removed ones
+     *
+     * @return the number of slices
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a slice
+     *
+     * @param id the id of the slice
+     * @return a new slice with the coordinates of the slice with the given id
+     * @throws IllegalArgumentException if the slice has been removed
+     */
+    public Slice getSlice(int id) {
+        checkNotRemoved(id);
+        return new Slice(new Cell(startX[id], startY[id]), new Cell(endX[id], endY[id]));
+    }
+
+    public int getStartRow(int id) {
+        return startX[id];
+    }
+
+    public int getStartCol(int id) {
+        return startY[id];
+    }
+
+    public int getEndRow(int id) {
+        return endX[id];
+    }
+
+    public int getEndCol(int id) {
+        return endY[id];
+    }
+
+    /**
+     * Gets the slice covering a cell
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the id of the slice, or {@link #NONE} if no slice covers the cell
+     */
+    public int sliceAt(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    /**
+     * Gets the slices that cover at least one cell of a window.
+     * Bounds are clipped to the pizza.
+     *
+     * @param top the first row of the window
+     * @param left the first column of the window
+     * @param bottom the last row of the window
+     * @param right the last column of the window
+     * @return the ids of the slices, each one reported once
+     */
+    public int[] window(int top, int left, int bottom, int right) {
+        top = Math.max(top, 0);
+        left = Math.max(left, 0);
+        bottom = Math.min(bottom, rows - 1);
+        right = Math.min(right, cols - 1);
+
+        Ids found = new Ids();
+        if (top > bottom || left > right)
+            return found.toArray();
+
+        // Slices starting more than a bucket above or to the left of the window can't reach it
+        for (int bx = Math.max(0, top / bucketSide - 1); bx <= bottom / bucketSide; bx++) {
+            for (int by = Math.max(0, left / bucketSide - 1); by <= right / bucketSide; by++) {
+                int b = bx * bucketCols + by;
+                for (int i = 0; i < bucketSizes[b]; i++) {
+                    int id = buckets[b][i];
+                    if (startX[id] <= bottom && endX[id] >= top && startY[id] <= right && endY[id] >= left)
+                        found.add(id);
+                }
+            }
+        }
+        return found.toArray();
+    }
+
+    /**
+     * Gets the bucket of a cell
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the index of the bucket
+     */
+    private int bucket(int row, int col) {
+        return (row / bucketSide) * bucketCols + col / bucketSide;
+    }
+
+    /**
+     * Gets the slices that share a side with a slice
+     *
+     * @param id the id of the slice
+     * @return the ids of the neighbour slices, each one reported once, none if the slice has been removed
+     */
+    public int[] neighbours(int id) {
+        // A rectangle can't touch another one on two sides without overlapping it, so no duplicates are possible
+        Ids found = new Ids();
+        if (isRemoved(id))
+            return found.toArray();
+        if (startX[id] > 0)
+            scanRow(startX[id] - 1, startY[id], endY[id], found);
+        if (endX[id] < rows - 1)
+            scanRow(endX[id] + 1, startY[id], endY[id], found);
+        if (startY[id] > 0)
+            scanCol(startY[id] - 1, startX[id], endX[id], found);
+        if (endY[id] < cols - 1)
+            scanCol(endY[id] + 1, startX[id], endX[id], found);
+        return found.toArray();
+    }
+
+    /**
+     * Gets the slices that share a side with a cell, e.g. to find the slices
+     * bordering a wasted cell
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the ids of the neighbour slices, each one reported once
+     */
+    public int[] neighbours(int row, int col) {
+        Ids found = new Ids();
+        if (row > 0)
+            found.addDistinct(cells[(row - 1) * cols + col]);
+        if (row < rows - 1)
+            found.addDistinct(cells[(row + 1) * cols + col]);
+        if (col > 0)
+            found.addDistinct(cells[row * cols + col - 1]);
+        if (col < cols - 1)
+            found.addDistinct(cells[row * cols + col + 1]);
+        return found.toArray();
+    }
+
+    private void scanRow(int x, int from, int to, Ids found) {
+        for (int y = from; y <= to; y++) {
+            int id = cells[x * cols + y];
+            if (id != NONE) {
+                found.add(id);
+                y = endY[id];
+            }
+        }
+    }
+
+    private void scanCol(int y, int from, int to, Ids found) {
+        for (int x = from; x <= to; x++) {
+            int id = cells[x * cols + y];
+            if (id != NONE) {
+                found.add(id);
+                x = endX[id];
+            }
+        }
+    }
+
+    /**
+     * Growable list of ids used to collect query results
+     */
+    private static class Ids {
+        private int[] ids = new int[8];
+        private int size = 0;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        void addDistinct(int id) {
+            if (id == NONE)
+                return;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id)
+                    return;
+            }
+            add(id);
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package it.karatekide.pizza.tree;
+
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Listener that prints the cells of some chosen slices when they are cut,
+ * e.g. to follow a slice while debugging.
+ *
+ * Slices are chosen by their number in the slice index of the pizza, and every
+ * cell is printed with its topping and coordinates, one row of the slice per line.
+ * Attach it with {@link Pizza#setListener(SlicingListener)} before starting to slice.
+ *
+ * @author Luca Di Stefano
+ */
+public class SliceProbes implements SlicingListener {
+
+    private Pizza pizza;
+    private PrintStream out;
+    private Set<Integer> probes = new HashSet<>();
+
+    /**
+     * Creates a listener printing to the standard output
+     *
+     * @param pizza the pizza that is being sliced
+     */
+    public SliceProbes(Pizza pizza) {
+        this(pizza, System.out);
+    }
+
+    /**
+     * Creates a listener
+     *
+     * @param pizza the pizza that is being sliced
+     * @param out where to print the probed slices
+     */
+    public SliceProbes(Pizza pizza, PrintStream out) {
+        this.pizza = pizza;
+        this.out = out;
+    }
+
+    public void addProbe(int sliceNum) {
+        probes.add(sliceNum);
+    }
+
+    public void addProbes(int... slices) {
+        for (Integer s : slices)
+            addProbe(s);
+    }
+
+    @Override
+    public void sliceCut(Slice slice) {
+        int sliceNum = pizza.getSlices().sliceAt(slice.start.x, slice.start.y);
+        if (!probes.contains(sliceNum))
+            return;
+
+        out.println("Processing slice (" + String.format("%05d", sliceNum) + ")");
+        for (int row = slice.start.x; row <= slice.end.x; row++) {
+            for (int col = slice.start.y; col <= slice.end.y; col++) {
+                out.print("(" + pizza.getOriginalTopping(row, col).getValue() + " " + row + "x" + col + ")");
+            }
+            out.println();
+        }
+    }
+}
@@ -3,88 +3,363 @@ package it.karatekide.pizza.tree;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static java.lang.Double.MAX_VALUE;
 
 /**
  * The slicer is the class that handles the pizza slicing
  * and keeps track of the simulation tree
  *
+ * The same slicer is meant to cut all the slices of a pizza, either one at a
+ * time with {@link #getSlice()}, all together with {@link #sliceAll()} or
+ * iterating over it: all the buffers needed to explore a tree are allocated
+ * once and reused for every slice.
+ *
+ * The tree is explored depth first without recursion: the nodes on the path
+ * from the root to the current node are the only ones alive, and they are kept
+ * in a pool of reusable nodes, one per tree level, together with a primitive
+ * array telling which child of each level has to be explored next.
+ * For every selection found (identified by its height and width, since all
+ * selections share the same starting cell) only the weight and the position in
+ * the exploration order are kept, in primitive tables. Tables are not cleared
+ * between slices: every tree has its own stamp, and a selection only counts as
+ * seen if it carries the stamp of the current tree.
+ *
+ * Branches that can't change the tables are not explored: the children of a
+ * selection that can't become feasible anymore, and the children of a selection
+ * already met with a weight that is not greater (see {@link #process(Node, int)}).
+ *
  * @author Luca Di Stefano
  */
-public class Slicer {
+public class Slicer implements Iterable<Slice> {
+
+    private static final byte EXPLORE_RIGHT = 0, EXPLORE_BOTTOM = 1, EXPLORED = 2;
+
+    private Random tieBreaker;
 
-    private List<Node> nodes;
-    private Node root;
+    private Node[] stack;
+    private byte[] next;
+
+    private int[] rowOffset;
+    private int[] stamps;
+    private double[] weights;
+    private int[] order;
+    private int[] touched;
+    private int touchedCount;
+    private int stamp = 0;
+    private int sequence;
+
+    private int built;
+    private int duplicates;
+    private int depth;
 
     @Getter
     private Pizza pizza;
 
     /**
-     * Creates a new pizza slicer and instantiates the root node
-     * (that will recursively instantiate the whole hierarchy)
-     * and creates the new node list.
+     * Creates a new pizza slicer, allocating the buffers
+     * that will be reused for every slice.
+     *
      * @param pizza the whole pizza reference
      */
     public Slicer(Pizza pizza) {
+        this(pizza, null);
+    }
+
+    /**
+     * Creates a new pizza slicer that, when several nodes share the highest
+     * weight, picks one of them at random instead of the first one.
+     *
+     * @param pizza the whole pizza reference
+     * @param tieBreaker the random generator used to break ties, or null to always pick the first node
+     */
+    Slicer(Pizza pizza, Random tieBreaker) {
         this.pizza = pizza;
-        nodes = new ArrayList<>();
-        root = new Node(pizza.getFirstCell(), this);
+        this.tieBreaker = tieBreaker;
+
+        int maxSize = pizza.getMaxSize();
+        int rows = pizza.getPizza().length;
+        int cols = pizza.getPizza()[0].length;
+        // A path from the starting cell to a h x w selection has h + w - 1 nodes, never more than h * w,
+        // so at most maxSize and at most rows + cols - 1. Nodes are created the first time their level is reached
+        stack = new Node[Math.max(1, Math.min(maxSize, rows + cols - 1))];
+        next = new byte[stack.length];
+
+        // Selections can have up to min(maxSize, rows) rows, and with h rows up to min(maxSize / h, cols) columns:
+        // the tables never have more entries than the cells of the pizza, however big the max size is
+        int maxRows = Math.min(maxSize, rows);
+        rowOffset = new int[maxRows + 2];
+        for (int h = 1; h <= maxRows; h++)
+            rowOffset[h + 1] = rowOffset[h] + Math.min(maxSize / h, cols);
+        stamps = new int[rowOffset[maxRows + 1]];
+        weights = new double[stamps.length];
+        order = new int[stamps.length];
+        touched = new int[stamps.length];
+    }
+
+    /**
+     * Tries to cut a slice starting from the first top-left free cell.
+     *
+     * @return a slice, if found, or null if the starting cell has been wasted or the pizza is empty
+     * @see #getSlice(Cell)
+     */
+    public Slice getSlice() {
+        Cell start = pizza.getFirstCell();
+        return start == null ? null : getSlice(start);
     }
 
     /**
      * Tries to cut a slice and if successful returns it, otherwise
      * it marks the starting cell as wasted, because it means it can
-     * not be used in any other best solution.
+     * not be used in any other best solution. This only holds if all the cells
+     * above and to the left of the starting cell have already been visited,
+     * otherwise use {@link #trySlice(Cell)}.
+     *
+     * To cut a slice it explores the whole simulation tree of the starting cell,
+     * then gets the feasible selection with the highest weight;
+     * among selections with the same weight the first one in exploration order
+     * wins, unless a tie breaker has been given.
      *
-     * To cut a slice it first processes all the nodes of the tree, then
-     * deletes all unfeasible nodes and gets the one that has the highest
-     * weight (filtering seems redundant, but it actually removes a lot of
-     * comparisons).
+     * The tree build is notified to the pizza listener and published
+     * as a Flight Recorder event.
      *
+     * @param start the starting cell, that must not have been cut
      * @return a slice, if found, or null.
      */
-    public Slice getSlice() {
-        processNode(root);
-        Optional<Node> candidate = nodes.stream().filter(Node::isFeasible).max(Node::compareTo);
+    Slice getSlice(Cell start) {
+        Slice slice = trySlice(start);
+        if (slice == null)
+            pizza.waste(start.x, start.y);
+        return slice;
+    }
 
-        if (candidate.isPresent() && candidate.get() != root) {
-            return pizza.cut(candidate.get());
+    /**
+     * Tries to cut a slice like {@link #getSlice(Cell)}, but leaves the starting
+     * cell on the pizza if no slice can start from it, since a slice starting
+     * from a cell visited later could still cover it.
+     *
+     * @param start the starting cell, that must not have been cut
+     * @return a slice, if found, or null.
+     */
+    Slice trySlice(Cell start) {
+        TreeBuildEvent event = new TreeBuildEvent();
+        event.begin();
+        explore(start);
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.row = start.x;
+            event.col = start.y;
+            event.nodes = built;
+            event.duplicates = duplicates;
+            event.depth = depth;
+            event.commit();
+        }
+        pizza.getListener().treeBuilt(start.x, start.y, built, duplicates, depth);
+
+        int best = tieBreaker == null ? getFirstBest() : getRandomBest();
+
+        if (best >= 0) {
+            int h = 1;
+            while (rowOffset[h + 1] <= best)
+                h++;
+            int w = best - rowOffset[h] + 1;
+            Slice slice = new Slice(new Cell(start.x, start.y), new Cell(start.x + h - 1, start.y + w - 1));
+            pizza.cut(slice);
+            return slice;
         }
-        pizza.waste(root.startX, root.startY);
         return null;
     }
 
+    /**
+     * Slices the whole pizza, until no free cell is left
+     *
+     * @return the slices that have been cut, in cutting order
+     */
+    public List<Slice> sliceAll() {
+        List<Slice> slices = new ArrayList<>();
+        forEach(slices::add);
+        return slices;
+    }
+
+    /**
+     * Iterates over the slices as they are cut. Cells that can't be part
+     * of any slice are wasted while looking for the next slice.
+     * Every iterator goes on slicing from where the pizza has been left.
+     *
+     * @return an iterator cutting a new slice at every step
+     */
+    @Override
+    public Iterator<Slice> iterator() {
+        return new Iterator<Slice>() {
+            private Slice next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !pizza.isEmpty())
+                    next = getSlice();
+                return next != null;
+            }
+
+            @Override
+            public Slice next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Slice slice = next;
+                next = null;
+                return slice;
+            }
+        };
+    }
+
+    /**
+     * Gets the feasible selection with the highest weight, the first one
+     * in exploration order in case of ties
+     *
+     * @return the selection, or -1 if no selection is feasible
+     */
+    private int getFirstBest() {
+        int best = -1;
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touched[t];
+            if (weights[i] != -MAX_VALUE && (best < 0 || weights[i] > weights[best]
+                    || (weights[i] == weights[best] && order[i] < order[best])))
+                best = i;
+        }
+        return best;
+    }
+
+    /**
+     * Gets one of the feasible selections with the highest weight, each one with the
+     * same probability (a reservoir sample of size one over the ties).
+     *
+     * @return the selection, or -1 if no selection is feasible
+     */
+    private int getRandomBest() {
+        int best = -1;
+        int ties = 0;
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touched[t];
+            if (weights[i] == -MAX_VALUE)
+                continue;
+            if (best < 0 || weights[i] > weights[best]) {
+                best = i;
+                ties = 1;
+            } else if (weights[i] == weights[best] && tieBreaker.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Explores the tree depth first, moving the selection to the right before
+     * moving it to the bottom, as long as the selection is not too big and
+     * it does not contain cells that have already been cut.
+     *
+     * Every node met is processed as soon as it is created, then it is
+     * only kept on the stack until its children have been explored.
+     *
+     * @param start the starting cell of the tree
+     */
+    private void explore(Cell start) {
+        Topping[][] map = pizza.getPizza();
+        int maxSize = pizza.getMaxSize();
+
+        stamp++;
+        touchedCount = 0;
+        sequence = 0;
+        built = 0;
+        duplicates = 0;
+        depth = 0;
+
+        int level = 0;
+        node(0).set(start.x, start.y, start.x, start.y, null);
+        next[0] = process(stack[0], level) ? EXPLORE_RIGHT : EXPLORED;
+
+        while (level >= 0) {
+            Node node = stack[level];
+            int rows = node.endX - node.startX + 1;
+            int cols = node.endY - node.startY + 1;
+
+            if (next[level] == EXPLORE_RIGHT) {
+                next[level] = EXPLORE_BOTTOM;
+                int y = node.endY + 1;
+                if (y < map[0].length && rows * (cols + 1) <= maxSize && !pizza.hasEmptyCells(node.startX, y, node.endX, y)) {
+                    node(++level).set(node.startX, node.startY, node.endX, y, node);
+                    next[level] = process(stack[level], level) ? EXPLORE_RIGHT : EXPLORED;
+                }
+            } else if (next[level] == EXPLORE_BOTTOM) {
+                next[level] = EXPLORED;
+                int x = node.endX + 1;
+                if (x < map.length && (rows + 1) * cols <= maxSize && !pizza.hasEmptyCells(x, node.startY, x, node.endY)) {
+                    node(++level).set(node.startX, node.startY, x, node.endY, node);
+                    next[level] = process(stack[level], level) ? EXPLORE_RIGHT : EXPLORED;
+                }
+            } else {
+                level--;
+            }
+        }
+    }
+
+    /**
+     * Gets the pooled node of a level of the tree
+     *
+     * @param level the level
+     * @return the node, created if the level has never been reached
+     */
+    private Node node(int level) {
+        if (stack[level] == null)
+            stack[level] = new Node(this);
+        return stack[level];
+    }
+
     /**
      * Processes the current node.
-     * If the node is not null (condition of loop exit)
-     * we check if we already have a similar solution in our list.
-     * This can actually happen, for example if we go from cell 0 to right and down
+     * We check if we already have a similar solution (the same selection)
+     * in our tables. This can actually happen, for example if we go from cell 0 to right and down
      * or from 0 down and right.
      * If we didn't already view a similar solution, we add the current one,
      * otherwise we replace the currently existing solution with the
      * worst of the two. This is done to ensure that only the best possible solution
-     * is inside the node list.
+     * is inside the tables.
+     * Adding or replacing a solution moves it to the end of the exploration order.
      *
-     * The proceeds to process right and bottom nodes (thus if one of the two is null
-     * the cycle ends and proceeds on).
+     * The children of a node are the same whatever path led to it, and their weights only
+     * grow with the weight of the node, so the children of a selection met again are only
+     * explored if its weight has been replaced: infeasible selections (whose children
+     * don't depend on their weight) and selections that are not lighter than the one in the
+     * tables would only repeat weights that are already there, or heavier ones.
+     * To discard a selection met again, the exact weight is only calculated if its
+     * lower bound is lighter than the weight in the tables.
+     * The children of a selection that can't become feasible are never explored.
      *
-     * @param node the root node
+     * @param node the node
+     * @param level the level of the node in the tree, starting from 0 for the root
+     * @return true if the children of the node have to be explored
      */
-    private void processNode(Node node) {
-        if (node != null) {
-            Optional<Node> old = nodes.stream().filter(n -> n.equals(node)).findFirst();
-            if (old.isPresent()) {
-                Node oldNode = old.get();
-                if (oldNode.getWeight() != node.getWeight() && oldNode.getWeight() > node.getWeight()) {
-                    nodes.remove(oldNode);
-                    nodes.add(node);
-                }
-            } else {
-                nodes.add(node);
-            }
-            processNode(node.getRight());
-            processNode(node.getBottom());
+    private boolean process(Node node, int level) {
+        built++;
+        depth = Math.max(depth, level + 1);
+
+        int i = rowOffset[node.endX - node.startX + 1] + node.endY - node.startY;
+        if (stamps[i] == stamp) {
+            duplicates++;
+            if (!node.isFeasible() || node.getMinWeight() >= weights[i] || node.getWeight() >= weights[i])
+                return false;
+            weights[i] = node.getWeight();
+            order[i] = sequence++;
+            return true;
         }
+
+        stamps[i] = stamp;
+        touched[touchedCount++] = i;
+        weights[i] = node.getWeight();
+        order[i] = sequence++;
+        return node.isFeasible() || node.canBecomeFeasible();
     }
 }
@@ -0,0 +1,68 @@
+package it.karatekide.pizza.tree;
+
+/**
+ * Callback interface notified while a pizza is being sliced.
+ *
+ * Every method has an empty default implementation, so a listener
+ * only overrides what it is interested in. When no listener is set
+ * on the pizza the {@link #NONE} instance is used, whose calls are
+ * empty and get inlined away by the JIT: instrumentation costs nothing
+ * unless somebody is actually listening.
+ *
+ * @author Luca Di Stefano
+ */
+public interface SlicingListener {
+
+    /**
+     * Listener that ignores every notification
+     */
+    SlicingListener NONE = new SlicingListener() {
+    };
+
+    /**
+     * Called when the slicer has built and processed the whole simulation
+     * tree for a starting cell
+     *
+     * @param row the row of the starting cell
+     * @param col the column of the starting cell
+     * @param nodes how many nodes have been built
+     * @param duplicates how many of those nodes were discarded because an equivalent selection was already known
+     * @param depth the depth of the tree
+     */
+    default void treeBuilt(int row, int col, int nodes, int duplicates, int depth) {
+    }
+
+    /**
+     * Called after a slice has been cut from the pizza
+     *
+     * @param slice the slice that has been cut
+     */
+    default void sliceCut(Slice slice) {
+    }
+
+    /**
+     * Called when a cell is thrown away
+     *
+     * @param row the row of the wasted cell
+     * @param col the column of the wasted cell
+     */
+    default void cellWasted(int row, int col) {
+    }
+
+    /**
+     * Called after a cut slice has been put back on the pizza, e.g. because its toppings changed
+     *
+     * @param slice the slice that has been put back
+     */
+    default void sliceRemoved(Slice slice) {
+    }
+
+    /**
+     * Called after a wasted cell has been put back on the pizza
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    default void cellRestored(int row, int col) {
+    }
+}
@@ -0,0 +1,98 @@
+package it.karatekide.pizza.tree;
+
+import lombok.Getter;
+
+/**
+ * Listener that collects counters about a slicing run:
+ * nodes built for every slice, duplicate nodes discarded,
+ * wasted cells, slicing speed and tree depth.
+ *
+ * Attach it with {@link Pizza#setListener(SlicingListener)} before
+ * starting to slice. Slices and cells put back on the pizza are taken
+ * away from the counters, so they always describe the current solution.
+ *
+ * @author Luca Di Stefano
+ */
+@Getter
+public class SlicingMetrics implements SlicingListener {
+
+    private long trees = 0;
+    private long nodes = 0;
+    private int maxNodes = 0;
+    private long duplicates = 0;
+    private int maxDepth = 0;
+    private long slices = 0;
+    private long wastedCells = 0;
+
+    private long startNanos = 0;
+    private long lastNanos = 0;
+
+    @Override
+    public void treeBuilt(int row, int col, int nodes, int duplicates, int depth) {
+        tick();
+        this.trees++;
+        this.nodes += nodes;
+        this.duplicates += duplicates;
+        maxNodes = Math.max(maxNodes, nodes);
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    @Override
+    public void sliceCut(Slice slice) {
+        tick();
+        slices++;
+    }
+
+    @Override
+    public void cellWasted(int row, int col) {
+        tick();
+        wastedCells++;
+    }
+
+    @Override
+    public void sliceRemoved(Slice slice) {
+        tick();
+        slices--;
+    }
+
+    @Override
+    public void cellRestored(int row, int col) {
+        tick();
+        wastedCells--;
+    }
+
+    /**
+     * Average number of nodes built for every tree (i.e. every attempt to cut a slice)
+     *
+     * @return the average number of nodes, 0 if no tree has been built
+     */
+    public double getNodesPerSlice() {
+        return trees == 0 ? 0 : (double) nodes / trees;
+    }
+
+    /**
+     * Slices cut per second, measured from the first to the last notification received
+     *
+     * @return the slicing speed, 0 if it cannot be measured yet
+     */
+    public double getSlicesPerSecond() {
+        long elapsed = lastNanos - startNanos;
+        return elapsed <= 0 ? 0 : slices * 1e9 / elapsed;
+    }
+
+    private void tick() {
+        lastNanos = System.nanoTime();
+        if (startNanos == 0)
+            startNanos = lastNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Slices: " + slices + "\n" +
+                "Wasted cells: " + wastedCells + "\n" +
+                "Nodes per slice: " + String.format("%.2f", getNodesPerSlice()) + " (max " + maxNodes + ")\n" +
+                "Duplicates discarded: " + duplicates + "\n" +
+                "Max tree depth: " + maxDepth + "\n" +
+                "Slices per second: " + String.format("%.2f", getSlicesPerSecond()) + "\n";
+    }
+}
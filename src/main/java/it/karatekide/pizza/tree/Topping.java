@@ -1,18 +1,35 @@
 package it.karatekide.pizza.tree;
 
 /**
- * Enum representation of the topping.
+ * Representation of the topping.
+ *
+ * Mushrooms and tomatoes are known to every pizza, while any other topping
+ * is created by the pizza that contains it, in the order it is found.
+ * The ordinal of a topping is its index in the topping counters of its pizza.
  */
-public enum Topping {
-    MUSHROOM("M"), TOMATO("T");
+public final class Topping {
+
+    public static final Topping MUSHROOM = new Topping("M", 0);
+    public static final Topping TOMATO = new Topping("T", 1);
 
     private String value;
+    private int ordinal;
 
-    Topping(String value) {
+    Topping(String value, int ordinal) {
         this.value = value;
+        this.ordinal = ordinal;
     }
 
     public String getValue() {
         return value;
     }
+
+    public int ordinal() {
+        return ordinal;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
 }
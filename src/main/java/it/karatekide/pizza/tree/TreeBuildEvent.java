@@ -0,0 +1,36 @@
+package it.karatekide.pizza.tree;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event emitted every time the slicer builds the simulation tree
+ * for a starting cell. It is only recorded when a JFR recording with this event
+ * enabled is running.
+ *
+ * @author Luca Di Stefano
+ */
+@Name("it.karatekide.pizza.TreeBuild")
+@Label("Tree Build")
+@Category("Pizza")
+@Description("The simulation tree for a starting cell has been built")
+class TreeBuildEvent extends Event {
+
+    @Label("Row")
+    int row;
+
+    @Label("Column")
+    int col;
+
+    @Label("Nodes")
+    int nodes;
+
+    @Label("Duplicates")
+    int duplicates;
+
+    @Label("Depth")
+    int depth;
+}
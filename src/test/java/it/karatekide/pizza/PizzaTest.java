@@ -1,15 +1,16 @@
 package it.karatekide.pizza;
 
+import it.karatekide.pizza.tree.CoverageBound;
 import it.karatekide.pizza.tree.Pizza;
 
 import it.karatekide.pizza.tree.Slice;
 import it.karatekide.pizza.tree.Slicer;
+import it.karatekide.pizza.tree.SlicingMetrics;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,9 +20,7 @@ import java.util.List;
  * .out file on the target/test-classes directory.
  * It also prints on console output the statistics of the
  * current test run and (if the number of slices is not too big)
- * the sliced pizza diagram. Please note that the "big" data set
- * may take quite a lot of time if you're not running a very powerful
- * machine (>3 minutes on an i3 quad-core)
+ * the sliced pizza diagram.
  *
  * @author Luca Di Stefano
  */
@@ -57,13 +56,10 @@ public class PizzaTest {
             File inFile = new File(url.getFile() + baseFile + ".in");
             String pizzaMap = FileUtils.readFileToString(inFile, "UTF-8");
             Pizza pizza = new Pizza(pizzaMap);
-            List<Slice> slices = new ArrayList<>();
-            while (!pizza.isEmpty()) {
-                Slicer slicer = new Slicer(pizza);
-                Slice s = slicer.getSlice();
-                if (s != null)
-                    slices.add(s);
-            }
+            CoverageBound bound = new CoverageBound(pizza);
+            SlicingMetrics metrics = new SlicingMetrics();
+            pizza.setListener(metrics);
+            List<Slice> slices = new Slicer(pizza).sliceAll();
 
             StringBuilder sb = new StringBuilder()
                     .append(slices.size())
@@ -74,13 +70,14 @@ public class PizzaTest {
                 System.out.println(pizza.getSliceDesc());
             }
 
-            System.out.println("Slices: " + slices.size());
             int used = pizza.getUsed();
             int total = pizza.getSurface();
             double percent = (double) Math.round(((double) used * 10000 / total)) / 100;
             System.out.println("Used: " + percent + "%");
             System.out.println("Th. Score: " + used);
+            System.out.println(bound);
             System.out.println("Waste: " + pizza.getWaste());
+            System.out.print(metrics);
 
             File outFile = new File(url.getFile() + baseFile + ".out");
             FileUtils.writeStringToFile(outFile, sb.toString(), "UTF-8");
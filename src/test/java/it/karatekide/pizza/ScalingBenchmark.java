@@ -0,0 +1,129 @@
+package it.karatekide.pizza;
+
+import it.karatekide.pizza.tree.Pizza;
+import it.karatekide.pizza.tree.PizzaGenerator;
+import it.karatekide.pizza.tree.Slicer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+
+/**
+ * Scaling benchmark for the pizza slicer.
+ *
+ * It slices synthetic square pizzas of growing sizes for every max slice
+ * size requested, and writes time, peak heap and coverage of every run to
+ * a CSV file (target/benchmark.csv by default). The "exponent" column is
+ * the growth of time compared to the previous size with the same max
+ * slice size: a linear algorithm stays around 1, anything sensibly above
+ * means that the slicer does not scale linearly with the pizza area.
+ *
+ * The benchmark is not part of the normal test run, launch it with
+ * <code>mvn test -Pbenchmark</code>. The sweep can be changed with the
+ * following system properties:
+ * <ul>
+ *     <li><code>benchmark.sizes</code> the pizza sides, comma separated (default 50,100,200,400)</li>
+ *     <li><code>benchmark.maxSizes</code> the max slice sizes, comma separated (default 6,10,14)</li>
+ *     <li><code>benchmark.minIngredient</code> the minimum ingredients (default 1)</li>
+ *     <li><code>benchmark.tomatoRatio</code> the share of tomatoes (default 0.5)</li>
+ *     <li><code>benchmark.clustering</code> the topping clustering (default 0)</li>
+ *     <li><code>benchmark.seed</code> the generation seed (default 2017)</li>
+ *     <li><code>benchmark.out</code> the CSV file to write</li>
+ * </ul>
+ *
+ * @author Luca Di Stefano
+ */
+public class ScalingBenchmark {
+
+    private final static String HEADER = "rows,cols,minIngredient,maxSize,seed,slices,used,waste,coverage,millis,peakHeapMb,exponent\n";
+
+    @Test
+    public void benchmark() throws Exception {
+        int[] sizes = ints(System.getProperty("benchmark.sizes", "50,100,200,400"));
+        int[] maxSizes = ints(System.getProperty("benchmark.maxSizes", "6,10,14"));
+        int minIngredient = Integer.parseInt(System.getProperty("benchmark.minIngredient", "1"));
+        double tomatoRatio = Double.parseDouble(System.getProperty("benchmark.tomatoRatio", "0.5"));
+        double clustering = Double.parseDouble(System.getProperty("benchmark.clustering", "0"));
+        long seed = Long.parseLong(System.getProperty("benchmark.seed", "2017"));
+        File outFile = new File(System.getProperty("benchmark.out", "target/benchmark.csv"));
+
+        // Warm up the JIT, so that the first size is not measured in interpreted mode,
+        // on pizzas generated like the measured ones
+        for (int maxSize : maxSizes) {
+            slice(pizza(seed, sizes[0], minIngredient, maxSize, tomatoRatio, clustering));
+        }
+
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int maxSize : maxSizes) {
+            double previousMillis = 0;
+            int previousSize = 0;
+            for (int size : sizes) {
+                Pizza pizza = pizza(seed, size, minIngredient, maxSize, tomatoRatio, clustering);
+
+                System.gc();
+                resetPeakHeap();
+                long start = System.nanoTime();
+                int slices = slice(pizza);
+                double millis = (System.nanoTime() - start) / 1e6;
+                long peak = getPeakHeap();
+
+                double coverage = (double) pizza.getUsed() / pizza.getSurface();
+                double exponent = previousMillis > 0
+                        ? Math.log(millis / previousMillis) / Math.log((double) size * size / ((double) previousSize * previousSize))
+                        : Double.NaN;
+
+                String line = size + "," + size + "," + minIngredient + "," + maxSize + "," + seed + "," + slices + ","
+                        + pizza.getUsed() + "," + pizza.getWaste() + "," + String.format("%.4f", coverage) + ","
+                        + String.format("%.1f", millis) + "," + (peak >> 20) + ","
+                        + (Double.isNaN(exponent) ? "" : String.format("%.2f", exponent)) + "\n";
+                System.out.print(line);
+                csv.append(line);
+
+                previousMillis = millis;
+                previousSize = size;
+            }
+        }
+
+        FileUtils.writeStringToFile(outFile, csv.toString(), "UTF-8");
+        System.out.println("Benchmark written to " + outFile.getAbsolutePath());
+    }
+
+    private Pizza pizza(long seed, int size, int minIngredient, int maxSize, double tomatoRatio, double clustering) {
+        return new PizzaGenerator(seed)
+                .rows(size)
+                .cols(size)
+                .tomatoRatio(tomatoRatio)
+                .clustering(clustering)
+                .minIngredient(minIngredient)
+                .maxSize(maxSize)
+                .toPizza();
+    }
+
+    private int slice(Pizza pizza) {
+        return new Slicer(pizza).sliceAll().size();
+    }
+
+    private void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    private long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,60 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the coverage upper bound.
+ *
+ * @author Luca Di Stefano
+ */
+public class CoverageBoundTest {
+
+    @Test
+    public void testExample() {
+        CoverageBound bound = new CoverageBound(new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n"));
+        assertEquals(15, bound.getUpperBound());
+        assertEquals(15, bound.getCoverableCells());
+    }
+
+    @Test
+    public void testCoverable() {
+        // Only the first three cells can be part of a slice with both toppings
+        CoverageBound bound = new CoverageBound(new Pizza("1 6 1 6\nTMTTTT\n"));
+        assertEquals(6, bound.getCoverableCells());
+        bound = new CoverageBound(new Pizza("1 6 1 2\nTMTTTT\n"));
+        assertEquals(3, bound.getCoverableCells());
+    }
+
+    @Test
+    public void testScarcity() {
+        // A single mushroom allows a single slice of at most 2 cells
+        CoverageBound bound = new CoverageBound(new Pizza("1 6 1 2\nTMTTTT\n"));
+        assertEquals(2, bound.getScarcityLimit());
+        assertEquals(2, bound.getUpperBound());
+    }
+
+    @Test
+    public void testNoSlice() {
+        CoverageBound bound = new CoverageBound(new Pizza("2 3 1 6\nTTT\nTTT\n"));
+        assertEquals(0, bound.getUpperBound());
+        assertTrue(bound.isReached(0));
+    }
+
+    @Test
+    public void testBoundsSolution() {
+        for (long seed = 0; seed < 10; seed++) {
+            Pizza pizza = new PizzaGenerator(seed).rows(40).cols(40).tomatoRatio(0.7).clustering(0.5)
+                    .minIngredient(2).maxSize(8).toPizza();
+            CoverageBound bound = new CoverageBound(pizza);
+            while (!pizza.isEmpty()) {
+                new Slicer(pizza).getSlice();
+                assertTrue(bound.getUpperBound() >= new CoverageBound(pizza).getUpperBound());
+            }
+            assertTrue(bound.getUpperBound() >= pizza.getUsed());
+            assertEquals(pizza.getUsed(), new CoverageBound(pizza).getUpperBound());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the incremental slicer.
+ *
+ * @author Luca Di Stefano
+ */
+public class IncrementalSlicerTest {
+
+    @Test
+    public void testReslice() {
+        String description = new PizzaGenerator(3).rows(60).cols(60).tomatoRatio(0.6).clustering(0.3)
+                .minIngredient(2).maxSize(10).generate();
+        Pizza pizza = new Pizza(description);
+        List<Slice> before = new Slicer(pizza).sliceAll();
+
+        List<Cell> changed = Arrays.asList(new Cell(30, 30), new Cell(30, 31), new Cell(31, 30), new Cell(45, 10));
+        List<Slice> cut = new IncrementalSlicer(pizza).reslice(flip(pizza, changed));
+        List<Slice> after = pizza.getSlices().getSlices();
+
+        assertTrue(pizza.isEmpty());
+        assertValid(new Pizza(edit(description, changed)), after);
+        assertEquals(pizza.getUsed(), area(after));
+        assertTrue(strings(after).containsAll(strings(cut)));
+
+        // Slices far from the changes are untouched
+        Set<String> kept = strings(after);
+        for (Slice s : before) {
+            if (s.end.x < 20 || s.start.x > 50)
+                assertTrue(kept.contains(s.toString()));
+        }
+    }
+
+    @Test
+    public void testNoChanges() {
+        String description = new PizzaGenerator(5).rows(30).cols(30).maxSize(6).generate();
+        Pizza pizza = new Pizza(description);
+        List<Slice> before = new Slicer(pizza).sliceAll();
+
+        List<Slice> cut = new IncrementalSlicer(pizza).reslice(Collections.emptyMap());
+
+        assertTrue(cut.isEmpty());
+        assertEquals(before.toString(), pizza.getSlices().getSlices().toString());
+        assertTrue(pizza.isEmpty());
+    }
+
+    @Test
+    public void testMetrics() {
+        String description = new PizzaGenerator(8).rows(40).cols(40).minIngredient(1).maxSize(6).generate();
+        Pizza pizza = new Pizza(description);
+        SlicingMetrics metrics = new SlicingMetrics();
+        pizza.setListener(metrics);
+        new Slicer(pizza).sliceAll();
+        long trees = metrics.getTrees();
+
+        List<Cell> changed = Arrays.asList(new Cell(0, 0), new Cell(20, 20), new Cell(39, 39));
+        List<Slice> cut = new IncrementalSlicer(pizza).reslice(flip(pizza, changed));
+
+        // Only the neighbourhood of the changes is sliced again, the other slices are not cut again
+        assertEquals(pizza.getSlices().getSlices().size(), metrics.getSlices());
+        assertEquals(pizza.getWaste(), metrics.getWastedCells());
+        assertTrue(metrics.getTrees() - trees >= cut.size());
+        assertTrue(metrics.getTrees() - trees <= 3 * (2 * 5 + 6) * (2 * 5 + 6));
+    }
+
+    @Test
+    public void testFarChanges() {
+        String description = new PizzaGenerator(13).rows(200).cols(200).tomatoRatio(0.7)
+                .minIngredient(2).maxSize(6).generate();
+        Pizza pizza = new Pizza(description);
+        new Slicer(pizza).sliceAll();
+        assertTrue(pizza.getWaste() > 2 * 16 * 16);
+
+        int[] work = new int[2];
+        pizza.setListener(new SlicingListener() {
+            @Override
+            public void treeBuilt(int row, int col, int nodes, int duplicates, int depth) {
+                work[0]++;
+            }
+
+            @Override
+            public void cellRestored(int row, int col) {
+                work[1]++;
+            }
+        });
+        List<Cell> changed = Arrays.asList(new Cell(0, 0), new Cell(199, 199));
+        new IncrementalSlicer(pizza).reslice(flip(pizza, changed));
+
+        // Opposite corners are sliced separately: the work is bound by two neighbourhoods, not by the whole pizza
+        assertTrue(pizza.isEmpty());
+        assertValid(new Pizza(edit(description, changed)), pizza.getSlices().getSlices());
+        assertTrue("Trees built: " + work[0], work[0] <= 2 * (2 * 5 + 6) * (2 * 5 + 6));
+        assertTrue("Cells restored: " + work[1], work[1] <= 2 * (2 * 5 + 6) * (2 * 5 + 6));
+    }
+
+    @Test
+    public void testSameCell() {
+        Pizza pizza = new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n");
+        new Slicer(pizza).sliceAll();
+
+        // Equal cells are the same change, the last one wins
+        Map<Cell, Topping> changes = new HashMap<>();
+        changes.put(new Cell(1, 2), Topping.TOMATO);
+        changes.put(new Cell(1, 2), Topping.MUSHROOM);
+        changes.put(new Cell(0, 0), Topping.MUSHROOM);
+        assertEquals(2, changes.size());
+
+        new IncrementalSlicer(pizza).reslice(changes);
+        assertTrue(pizza.isEmpty());
+        assertSame(Topping.MUSHROOM, pizza.getOriginalTopping(1, 2));
+        assertSame(Topping.MUSHROOM, pizza.getOriginalTopping(0, 0));
+    }
+
+    @Test
+    public void testInvalidChanges() {
+        Pizza pizza = new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n");
+        List<Slice> before = new Slicer(pizza).sliceAll();
+
+        List<Map<Cell, Topping>> invalid = Arrays.asList(
+                changes(new Cell(0, 0), Topping.MUSHROOM, new Cell(2, 4), new Topping("A", 2)),
+                changes(new Cell(0, 0), Topping.MUSHROOM, new Cell(3, 0), Topping.TOMATO),
+                changes(new Cell(0, 0), Topping.MUSHROOM, new Cell(1, -1), Topping.TOMATO));
+        for (Map<Cell, Topping> changes : invalid) {
+            try {
+                new IncrementalSlicer(pizza).reslice(changes);
+                fail("Invalid changes accepted: " + changes);
+            } catch (IllegalArgumentException e) {
+                // The pizza is left as it was
+                assertEquals(before.toString(), pizza.getSlices().getSlices().toString());
+                assertTrue(pizza.isEmpty());
+                assertSame(Topping.TOMATO, pizza.getOriginalTopping(0, 0));
+            }
+        }
+    }
+
+    private Map<Cell, Topping> changes(Cell first, Topping firstTopping, Cell second, Topping secondTopping) {
+        Map<Cell, Topping> changes = new LinkedHashMap<>();
+        changes.put(first, firstTopping);
+        changes.put(second, secondTopping);
+        return changes;
+    }
+
+    private Map<Cell, Topping> flip(Pizza pizza, List<Cell> cells) {
+        Map<Cell, Topping> changes = new LinkedHashMap<>();
+        for (Cell c : cells)
+            changes.put(c, pizza.getOriginalTopping(c.x, c.y) == Topping.TOMATO ? Topping.MUSHROOM : Topping.TOMATO);
+        return changes;
+    }
+
+    private Set<String> strings(List<Slice> slices) {
+        Set<String> strings = new HashSet<>();
+        for (Slice s : slices)
+            strings.add(s.toString());
+        return strings;
+    }
+
+    private String edit(String description, List<Cell> changed) {
+        String[] lines = description.split("\n");
+        for (Cell c : changed) {
+            char[] row = lines[c.x + 1].toCharArray();
+            row[c.y] = row[c.y] == 'T' ? 'M' : 'T';
+            lines[c.x + 1] = new String(row);
+        }
+        return String.join("\n", lines) + "\n";
+    }
+
+    private int area(List<Slice> slices) {
+        int area = 0;
+        for (Slice s : slices)
+            area += (s.end.x - s.start.x + 1) * (s.end.y - s.start.y + 1);
+        return area;
+    }
+
+    private void assertValid(Pizza pizza, List<Slice> slices) {
+        Topping[][] map = pizza.getPizza();
+        boolean[][] used = new boolean[map.length][map[0].length];
+        for (Slice s : slices) {
+            int tomatoes = 0, mushrooms = 0;
+            for (int x = s.start.x; x <= s.end.x; x++) {
+                for (int y = s.start.y; y <= s.end.y; y++) {
+                    assertFalse("Overlapping slice " + s, used[x][y]);
+                    used[x][y] = true;
+                    if (map[x][y] == Topping.TOMATO)
+                        tomatoes++;
+                    else
+                        mushrooms++;
+                }
+            }
+            assertTrue((s.end.x - s.start.x + 1) * (s.end.y - s.start.y + 1) <= pizza.getMaxSize());
+            assertTrue(tomatoes >= pizza.getMinIngredient() && mushrooms >= pizza.getMinIngredient());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the synthetic pizza generator.
+ *
+ * @author Luca Di Stefano
+ */
+public class PizzaGeneratorTest {
+
+    @Test
+    public void testDeterministic() {
+        PizzaGenerator generator = new PizzaGenerator(42).rows(30).cols(40).clustering(0.5);
+        assertEquals(generator.generate(), generator.generate());
+        assertEquals(generator.generate(), new PizzaGenerator(42).rows(30).cols(40).clustering(0.5).generate());
+        assertNotEquals(generator.generate(), new PizzaGenerator(43).rows(30).cols(40).clustering(0.5).generate());
+    }
+
+    @Test
+    public void testFormat() {
+        Pizza pizza = new PizzaGenerator(1).rows(20).cols(30).minIngredient(2).maxSize(8).toPizza();
+        assertEquals(20, pizza.getPizza().length);
+        assertEquals(30, pizza.getPizza()[0].length);
+        assertEquals(2, pizza.getMinIngredient());
+        assertEquals(8, pizza.getMaxSize());
+    }
+
+    @Test
+    public void testTomatoRatio() {
+        String pizza = new PizzaGenerator(7).rows(200).cols(200).tomatoRatio(0.3).clustering(0.6).generate();
+        String cells = pizza.substring(pizza.indexOf('\n') + 1);
+        long tomatoes = cells.chars().filter(c -> c == 'T').count();
+        double ratio = (double) tomatoes / (200 * 200);
+        assertTrue("Ratio was " + ratio, ratio > 0.25 && ratio < 0.35);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooBig() {
+        new PizzaGenerator(1).rows(PizzaGenerator.MAX_SIDE + 1);
+    }
+}
@@ -0,0 +1,93 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the randomized restarts.
+ *
+ * @author Luca Di Stefano
+ */
+public class RandomRestartsTest {
+
+    @Test
+    public void testReplay() throws Exception {
+        Pizza pizza = new PizzaGenerator(11).rows(40).cols(50).tomatoRatio(0.6).minIngredient(2).maxSize(8).toPizza();
+        RandomRestarts restarts = new RandomRestarts(pizza);
+
+        RandomRestarts.Restart best = restarts.best(42, 8, 4);
+        RandomRestarts.Restart replay = restarts.run(best.getSeed());
+
+        assertEquals(best.getOrder(), replay.getOrder());
+        assertEquals(best.getUsed(), replay.getUsed());
+        assertEquals(best.getSlices().toString(), replay.getSlices().toString());
+        assertTrue(best.getUsed() <= restarts.getBound().getUpperBound());
+        assertFalse("The original pizza must not be sliced", pizza.isEmpty());
+    }
+
+    @Test
+    public void testCompletionOrder() throws Exception {
+        // Runs end in any order, but ties always go to the first run submitted
+        Pizza pizza = new PizzaGenerator(14).rows(20).cols(20).minIngredient(1).maxSize(6).toPizza();
+        RandomRestarts restarts = new RandomRestarts(pizza);
+
+        RandomRestarts.Restart sequential = restarts.best(3, 32, 1);
+        RandomRestarts.Restart parallel = restarts.best(3, 32, 4);
+        // No run is stopped early, which would make the best one depend on timing
+        assertTrue(sequential.getUsed() < restarts.getBound().getUpperBound());
+        assertEquals(sequential.getSeed(), parallel.getSeed());
+        assertEquals(sequential.getUsed(), parallel.getUsed());
+    }
+
+    @Test
+    public void testBestOfAll() throws Exception {
+        Pizza pizza = new PizzaGenerator(12).rows(30).cols(30).tomatoRatio(0.7).clustering(0.4).minIngredient(2).maxSize(7).toPizza();
+        RandomRestarts restarts = new RandomRestarts(pizza);
+
+        RandomRestarts.Restart best = restarts.best(7, 6, 3);
+        assertEquals(best.getUsed(), restarts.best(7, 6, 1).getUsed());
+        for (int i = 0; i < 6; i++) {
+            RandomRestarts.Restart r = restarts.best(7 + i * 0x9E3779B97F4A7C15L, 1, 1);
+            assertTrue(r.getUsed() <= best.getUsed());
+        }
+    }
+
+    @Test
+    public void testScanOrders() {
+        for (ScanOrder order : ScanOrder.values()) {
+            int[] cells = order.cells(7, 11, 3, new Random(1));
+            boolean[] seen = new boolean[7 * 11];
+            for (int c : cells) {
+                assertFalse(order + " visits cell " + c + " twice", seen[c]);
+                seen[c] = true;
+            }
+            assertEquals(7 * 11, cells.length);
+        }
+    }
+
+    @Test
+    public void testBlockOrdersWaste() {
+        // Blocks are two cells wide, and every slice starts in a block and ends in the next one:
+        // visiting a block before the one on its left must not waste the cells the left block needs
+        Pizza pizza = new Pizza("2 16 1 2\nTTMMTTMMTTMMTTMM\nTTMMTTMMTTMMTTMM\n");
+        RandomRestarts restarts = new RandomRestarts(pizza);
+        int greedy = new Slicer(new Pizza(pizza)).sliceAll().size();
+
+        int checked = 0;
+        for (long i = 0; checked < 8; i++) {
+            long seed = i * 0x9E3779B97F4A7C15L;
+            RandomRestarts.Restart r = restarts.run(seed);
+            if (r.getOrder().isMonotone())
+                continue;
+            checked++;
+            assertTrue(r.getPizza().isEmpty());
+            assertEquals(r.getOrder() + " run with seed " + seed, greedy, r.getSlices().size());
+            assertEquals(28, r.getUsed());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the slice index.
+ *
+ * The slices used are the following (# is an uncovered cell):
+ * <code>
+ *     0 0 1 1 #
+ *     0 0 2 2 2
+ *     3 # # 4 4
+ * </code>
+ *
+ * @author Luca Di Stefano
+ */
+public class SliceIndexTest {
+
+    private SliceIndex index() {
+        SliceIndex index = new SliceIndex(3, 5, 4);
+        index.add(slice(0, 0, 1, 1));
+        index.add(slice(0, 2, 0, 3));
+        index.add(slice(1, 2, 1, 4));
+        index.add(slice(2, 0, 2, 0));
+        index.add(slice(2, 3, 2, 4));
+        return index;
+    }
+
+    @Test
+    public void testPoint() {
+        SliceIndex index = index();
+        assertEquals(5, index.size());
+        assertEquals(0, index.sliceAt(1, 1));
+        assertEquals(2, index.sliceAt(1, 4));
+        assertEquals(SliceIndex.NONE, index.sliceAt(0, 4));
+        assertEquals(SliceIndex.NONE, index.sliceAt(2, 2));
+        assertEquals("1 2 1 4\n", index.getSlice(2).toString());
+    }
+
+    @Test
+    public void testWindow() {
+        SliceIndex index = index();
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, sorted(index.window(0, 0, 2, 4)));
+        assertArrayEquals(new int[]{0, 2, 4}, sorted(index.window(1, 1, 2, 3)));
+        assertArrayEquals(new int[]{0}, sorted(index.window(1, 0, 1, 1)));
+        assertArrayEquals(new int[]{}, index.window(2, 1, 2, 2));
+        assertArrayEquals(new int[]{1, 2}, sorted(index.window(-5, 3, 1, 3)));
+    }
+
+    @Test
+    public void testNeighbours() {
+        SliceIndex index = index();
+        assertArrayEquals(new int[]{1, 2, 3}, sorted(index.neighbours(0)));
+        assertArrayEquals(new int[]{0, 1, 4}, sorted(index.neighbours(2)));
+        assertArrayEquals(new int[]{0}, sorted(index.neighbours(3)));
+    }
+
+    @Test
+    public void testCellNeighbours() {
+        SliceIndex index = index();
+        assertArrayEquals(new int[]{1, 2}, sorted(index.neighbours(0, 4)));
+        assertArrayEquals(new int[]{0, 3}, sorted(index.neighbours(2, 1)));
+        assertArrayEquals(new int[]{2, 4}, sorted(index.neighbours(2, 2)));
+    }
+
+    @Test
+    public void testPizza() {
+        Pizza pizza = new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n");
+        while (!pizza.isEmpty()) {
+            new Slicer(pizza).getSlice();
+        }
+        SliceIndex index = pizza.getSlices();
+        assertEquals(3, index.size());
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 5; y++)
+                assertNotEquals(SliceIndex.NONE, index.sliceAt(x, y));
+        }
+    }
+
+    @Test
+    public void testHugeMaxSize() {
+        SliceIndex index = new SliceIndex(3, 5, Integer.MAX_VALUE);
+        index.add(slice(0, 0, 2, 4));
+        assertArrayEquals(new int[]{0}, index.window(1, 1, 1, 1));
+    }
+
+    @Test
+    public void testRemove() {
+        SliceIndex index = index();
+        index.remove(2);
+
+        assertTrue(index.isRemoved(2));
+        assertEquals(5, index.size());
+        assertEquals(SliceIndex.NONE, index.sliceAt(1, 3));
+        assertArrayEquals(new int[]{}, index.neighbours(2));
+        assertArrayEquals(new int[]{1, 3}, sorted(index.neighbours(0)));
+        assertArrayEquals(new int[]{0, 4}, sorted(index.window(1, 1, 2, 3)));
+        assertEquals(4, index.getSlices().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemovedSlice() {
+        SliceIndex index = index();
+        index.remove(2);
+        index.getSlice(2);
+    }
+
+    @Test
+    public void testWindowBuckets() {
+        Random random = new Random(42);
+        StringBuilder description = new StringBuilder("30 40 1 6\n");
+        for (int x = 0; x < 30; x++) {
+            for (int y = 0; y < 40; y++)
+                description.append(random.nextInt(3) == 0 ? 'M' : 'T');
+            description.append('\n');
+        }
+        Pizza pizza = new Pizza(description.toString());
+        new Slicer(pizza).sliceAll();
+        SliceIndex index = pizza.getSlices();
+        for (int id = 0; id < index.size(); id += 7)
+            index.remove(id);
+
+        // Every window must find the slices covering its cells, and nothing else
+        for (int i = 0; i < 200; i++) {
+            int top = random.nextInt(30), left = random.nextInt(40);
+            int bottom = top + random.nextInt(10), right = left + random.nextInt(10);
+            Set<Integer> expected = new TreeSet<>();
+            for (int x = top; x <= Math.min(bottom, 29); x++) {
+                for (int y = left; y <= Math.min(right, 39); y++) {
+                    if (index.sliceAt(x, y) != SliceIndex.NONE)
+                        expected.add(index.sliceAt(x, y));
+                }
+            }
+            int[] ids = new int[expected.size()];
+            int j = 0;
+            for (int id : expected)
+                ids[j++] = id;
+            assertArrayEquals(ids, sorted(index.window(top, left, bottom, right)));
+        }
+    }
+
+    private Slice slice(int startX, int startY, int endX, int endY) {
+        return new Slice(new Cell(startX, startY), new Cell(endX, endY));
+    }
+
+    private int[] sorted(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,29 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the slice probes, run on the example data set.
+ *
+ * @author Luca Di Stefano
+ */
+public class SliceProbesTest {
+
+    @Test
+    public void testProbes() {
+        Pizza pizza = new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SliceProbes probes = new SliceProbes(pizza, new PrintStream(out, true));
+        probes.addProbes(1, 5);
+        pizza.setListener(probes);
+        new Slicer(pizza).sliceAll();
+
+        // Only the second slice is printed, there is no sixth one
+        assertEquals("Processing slice (00001)\n(T 0x2)\n(M 1x2)\n(T 2x2)\n", out.toString().replace("\r", ""));
+    }
+}
@@ -0,0 +1,98 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the slicer on edge cases that the data sets don't cover.
+ *
+ * @author Luca Di Stefano
+ */
+public class SlicerTest {
+
+    @Test
+    public void testLargeMaxSize() {
+        int cols = 5000;
+        StringBuilder sb = new StringBuilder("1 " + cols + " 1 " + cols + "\n");
+        for (int col = 0; col < cols; col++)
+            sb.append(col % 2 == 0 ? 'T' : 'M');
+        Pizza pizza = new Pizza(sb.append('\n').toString());
+        SlicingMetrics metrics = new SlicingMetrics();
+        pizza.setListener(metrics);
+
+        Slice slice = new Slicer(pizza).getSlice();
+
+        assertNotNull(slice);
+        assertEquals(cols, metrics.getMaxDepth());
+    }
+
+    @Test
+    public void testMaxSizeBeyondPizza() {
+        // The buffers follow the pizza, not the max size
+        for (int maxSize : new int[]{100000000, Integer.MAX_VALUE}) {
+            Pizza pizza = new Pizza("2 3 1 " + maxSize + "\nTMT\nMTM\n");
+            List<Slice> slices = new Slicer(pizza).sliceAll();
+
+            assertEquals("[0 0 1 2\n]", slices.toString());
+            assertEquals(0, pizza.getWaste());
+        }
+        assertEquals("[0 0 0 1\n]", new Slicer(new Pizza("1 2 1 100000000\nTM\n")).sliceAll().toString());
+    }
+
+    @Test
+    public void testReuse() {
+        String description = new PizzaGenerator(21).rows(50).cols(50).tomatoRatio(0.6).clustering(0.3)
+                .minIngredient(2).maxSize(9).generate();
+
+        Pizza fresh = new Pizza(description);
+        List<Slice> oneSlicerPerSlice = new ArrayList<>();
+        while (!fresh.isEmpty()) {
+            Slice s = new Slicer(fresh).getSlice();
+            if (s != null)
+                oneSlicerPerSlice.add(s);
+        }
+
+        Pizza reused = new Pizza(description);
+        List<Slice> sliced = new Slicer(reused).sliceAll();
+
+        assertEquals(oneSlicerPerSlice.toString(), sliced.toString());
+        assertEquals(fresh.getWaste(), reused.getWaste());
+        assertTrue(reused.isEmpty());
+    }
+
+    @Test
+    public void testIterator() {
+        Pizza pizza = new Pizza("3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n");
+        Slicer slicer = new Slicer(pizza);
+        int slices = 0;
+        for (Slice s : slicer) {
+            assertNotNull(s);
+            slices++;
+        }
+        assertEquals(3, slices);
+        assertFalse(slicer.iterator().hasNext());
+        assertNull(slicer.getSlice());
+    }
+
+    @Test
+    public void testPruning() {
+        // Two tomatoes and two mushrooms can't fit in a slice of three cells
+        Pizza pizza = new Pizza("3 3 2 3\nTMT\nMTM\nTMT\n");
+        SlicingMetrics metrics = new SlicingMetrics();
+        pizza.setListener(metrics);
+
+        List<Slice> slices = new Slicer(pizza).sliceAll();
+
+        assertTrue(slices.isEmpty());
+        assertEquals(9, pizza.getWaste());
+        assertEquals(metrics.getTrees(), metrics.getNodes());
+    }
+}
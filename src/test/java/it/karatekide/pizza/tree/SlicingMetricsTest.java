@@ -0,0 +1,75 @@
+package it.karatekide.pizza.tree;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the slicing metrics, run on the example data set
+ * whose solution is known (3 slices, no waste).
+ *
+ * @author Luca Di Stefano
+ */
+public class SlicingMetricsTest {
+
+    private final static String EXAMPLE = "3 5 1 6\nTTTTT\nTMMMT\nTTTTT\n";
+
+    @Test
+    public void testCounters() {
+        Pizza pizza = new Pizza(EXAMPLE);
+        SlicingMetrics metrics = new SlicingMetrics();
+        pizza.setListener(metrics);
+        new Slicer(pizza).sliceAll();
+
+        assertEquals(3, metrics.getSlices());
+        assertEquals(3, metrics.getTrees());
+        assertEquals(0, metrics.getWastedCells());
+        assertEquals(34, metrics.getNodes());
+        assertEquals(13, metrics.getMaxNodes());
+        assertEquals(10, metrics.getDuplicates());
+        assertEquals(5, metrics.getMaxDepth());
+        assertEquals(34.0 / 3, metrics.getNodesPerSlice(), 1e-9);
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        Path file = Files.createTempFile("slicing", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("it.karatekide.pizza.SliceCut");
+                recording.start();
+                new Slicer(new Pizza(EXAMPLE)).sliceAll();
+                recording.stop();
+                recording.dump(file);
+            }
+
+            int events = 0;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("it.karatekide.pizza.SliceCut"))
+                    events++;
+            }
+            assertEquals(3, events);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWaste() {
+        Pizza pizza = new Pizza("1 3 1 6\nTTT\n");
+        SlicingMetrics metrics = new SlicingMetrics();
+        pizza.setListener(metrics);
+        new Slicer(pizza).sliceAll();
+
+        assertEquals(0, metrics.getSlices());
+        assertEquals(3, metrics.getWastedCells());
+        assertEquals(pizza.getWaste(), metrics.getWastedCells());
+    }
+}
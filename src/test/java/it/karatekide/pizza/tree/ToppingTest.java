@@ -0,0 +1,100 @@
+package it.karatekide.pizza.tree;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for pizzas with more than two kinds of toppings.
+ *
+ * @author Luca Di Stefano
+ */
+public class ToppingTest {
+
+    @Test
+    public void testTwoToppings() {
+        Pizza pizza = new Pizza("1 3 1 3\nTTT\n");
+        assertEquals(2, pizza.getToppingTypes().length);
+        assertSame(Topping.MUSHROOM, pizza.getToppingTypes()[0]);
+        assertSame(Topping.TOMATO, pizza.getToppingTypes()[1]);
+        assertArrayEquals(new int[]{0, 1}, pizza.getRequiredToppings());
+
+        // Mushrooms are always needed, even if the pizza has none
+        assertTrue(new Slicer(pizza).sliceAll().isEmpty());
+        assertEquals(3, pizza.getWaste());
+    }
+
+    @Test
+    public void testFixedRequirement() {
+        // Replacing the last anchovy doesn't make anchovies optional
+        Pizza pizza = new Pizza("1 4 1 4\nTMAT\n");
+        pizza.setTopping(0, 2, Topping.TOMATO);
+        assertArrayEquals(new int[]{0, 1, 2}, pizza.getRequiredToppings());
+        assertTrue(new Slicer(pizza).sliceAll().isEmpty());
+        assertEquals(4, pizza.getWaste());
+    }
+
+    @Test
+    public void testOtherToppings() {
+        Pizza pizza = new Pizza("2 4 1 4\nABCA\nCBAB\n");
+        assertEquals(5, pizza.getToppingTypes().length);
+        assertArrayEquals(new int[]{2, 3, 4}, pizza.getRequiredToppings());
+
+        List<Slice> slices = new Slicer(pizza).sliceAll();
+        assertEquals(2, slices.size());
+        assertEquals(0, pizza.getWaste());
+    }
+
+    @Test
+    public void testAbundance() {
+        // Mushrooms are the most abundant topping: adding one more to the slice is rewarded
+        Pizza pizza = new Pizza("1 8 1 4\nXTMMMMXT\n");
+        assertEquals("0 0 0 3\n", new Slicer(pizza).getSlice().toString());
+    }
+
+    @Test
+    public void testParse() {
+        Pizza pizza = new Pizza("2 4 1 4\nTMCA\nACMT\n");
+        Topping[] types = pizza.getToppingTypes();
+        assertEquals(4, types.length);
+        assertEquals("C", types[2].getValue());
+        assertEquals("A", types[3].getValue());
+        assertEquals(2, types[2].ordinal());
+        assertSame(types[2], pizza.getPizza()[1][1]);
+        assertEquals(1, pizza.getToppingCount(3, 0, 0, 0, 3));
+        assertEquals(2, pizza.getToppingCount(2, 0, 0, 1, 3));
+    }
+
+    @Test
+    public void testSlices() {
+        Pizza pizza = new Pizza("3 6 1 4\nTMCTMC\nCTMCTM\nMCTMCT\n");
+        Topping[][] map = new Pizza(pizza).getPizza();
+        List<Slice> slices = new Slicer(pizza).sliceAll();
+
+        assertTrue(slices.size() > 0);
+        for (Slice s : slices) {
+            int[] counts = new int[3];
+            for (int x = s.start.x; x <= s.end.x; x++) {
+                for (int y = s.start.y; y <= s.end.y; y++)
+                    counts[map[x][y].ordinal()]++;
+            }
+            assertTrue((s.end.x - s.start.x + 1) * (s.end.y - s.start.y + 1) <= 4);
+            for (int count : counts)
+                assertTrue("Missing topping in " + s, count >= 1);
+        }
+    }
+
+    @Test
+    public void testBound() {
+        // Every slice needs the only anchovy
+        CoverageBound bound = new CoverageBound(new Pizza("2 3 1 6\nTMT\nMAM\n"));
+        assertEquals(6, bound.getCoverableCells());
+        assertEquals(6, bound.getScarcityLimit());
+        assertEquals(6, bound.getUpperBound());
+    }
+}